@@ -28,9 +28,7 @@ import hudson.util.FormValidation;
 import net.sf.json.JSONNull;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
-import org.jfrog.build.api.util.NullLog;
-import org.jfrog.build.client.ArtifactoryBuildInfoClient;
-import org.jfrog.build.client.ArtifactoryHttpClient;
+import org.jfrog.hudson.util.AsyncConnectionValidator;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -76,6 +74,8 @@ public class ArtifactoryBuilder extends Builder {
     // this marker indicates Hudson that this is an implementation of an extension point.
     public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
 
+        private static final AsyncConnectionValidator connectionValidator = new AsyncConnectionValidator();
+
         private List<ArtifactoryServer> artifactoryServers;
 
         public DescriptorImpl() {
@@ -103,6 +103,8 @@ public class ArtifactoryBuilder extends Builder {
          * Most chances this validation won't work, since there no proper way to explicitly request either deployer or
          * resolver credentials from the global config form, so we can't check if we should use resolver or deployer
          * credentials when testing the connection to the server
+         * <p/>
+         * The check itself runs in the background, see {@link AsyncConnectionValidator}.
          */
         public FormValidation doCheckUrl(@QueryParameter final String value,
                 @QueryParameter final String username,
@@ -111,20 +113,7 @@ public class ArtifactoryBuilder extends Builder {
                 return FormValidation.error("Please set a valid Artifactory URL");
             }
 
-            ArtifactoryBuildInfoClient client;
-            if (StringUtils.isNotBlank(username)) {
-                client = new ArtifactoryBuildInfoClient(value, username, password, new NullLog());
-            } else {
-                client = new ArtifactoryBuildInfoClient(value, new NullLog());
-            }
-            try {
-                ArtifactoryHttpClient.Version version = client.verifyCompatibleArtifactoryVersion();
-            } catch (UnsupportedOperationException uoe) {
-                return FormValidation.warning(uoe.getMessage());
-            } catch (Exception e) {
-                return FormValidation.error(e.getMessage());
-            }
-            return FormValidation.ok();
+            return connectionValidator.validate(value, username, password);
         }
 
         @Override
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime health of a single URL of an {@link ArtifactoryServer}. Health is tracked passively from the outcome of
+ * real requests: a moving average of the latency is used to balance reads, and a circuit breaker takes the URL out of
+ * rotation after consecutive connection failures until a cool-down period has passed. After the cool-down a single
+ * request is let through; its outcome closes or re-opens the circuit.
+ * <p/>
+ * Endpoints are shared per URL and are never persisted.
+ */
+public class ArtifactoryEndpoint {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_CIRCUIT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * Weight (out of 8) of the newest sample in the latency moving average
+     */
+    private static final int LATENCY_SAMPLE_WEIGHT = 2;
+
+    private static final ConcurrentMap<String, ArtifactoryEndpoint> endpoints =
+            new ConcurrentHashMap<String, ArtifactoryEndpoint>();
+
+    private final String url;
+    private final AtomicLong averageLatencyMillis = new AtomicLong();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openUntil = new AtomicLong();
+
+    ArtifactoryEndpoint(String url) {
+        this.url = url;
+    }
+
+    /**
+     * @param url Artifactory URL
+     * @return The shared endpoint of the URL
+     */
+    public static ArtifactoryEndpoint forUrl(String url) {
+        ArtifactoryEndpoint endpoint = endpoints.get(url);
+        if (endpoint == null) {
+            ArtifactoryEndpoint newEndpoint = new ArtifactoryEndpoint(url);
+            endpoint = endpoints.putIfAbsent(url, newEndpoint);
+            if (endpoint == null) {
+                endpoint = newEndpoint;
+            }
+        }
+        return endpoint;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Side-effect free check used to order endpoints; use {@link #tryAcquireProbe()} right before sending a request.
+     *
+     * @return False while the circuit is open and the cool-down has not passed yet
+     */
+    public boolean isAvailable() {
+        long until = openUntil.get();
+        return until == 0 || currentTimeMillis() >= until;
+    }
+
+    /**
+     * Asks for permission to send a request to this endpoint. While the circuit is closed permission is always granted.
+     * Once the cool-down has passed it is granted to a single caller which then acts as the probe, the others wait for
+     * another cool-down period. Callers granted permission must report the outcome with {@link #recordSuccess(long)} or
+     * {@link #recordFailure()}.
+     *
+     * @return True if the request may be sent
+     */
+    public boolean tryAcquireProbe() {
+        long until = openUntil.get();
+        if (until == 0) {
+            return true;
+        }
+        long now = currentTimeMillis();
+        return now >= until && openUntil.compareAndSet(until, now + OPEN_CIRCUIT_MILLIS);
+    }
+
+    /**
+     * @return True if the circuit is currently open
+     */
+    public boolean isCircuitOpen() {
+        return openUntil.get() != 0;
+    }
+
+    /**
+     * @return Moving average of successful request latencies, 0 if no request completed yet
+     */
+    public long getAverageLatencyMillis() {
+        return averageLatencyMillis.get();
+    }
+
+    public void recordSuccess(long latencyMillis) {
+        consecutiveFailures.set(0);
+        openUntil.set(0);
+        long current;
+        long updated;
+        do {
+            current = averageLatencyMillis.get();
+            updated = current == 0 ? latencyMillis :
+                    (current * (8 - LATENCY_SAMPLE_WEIGHT) + latencyMillis * LATENCY_SAMPLE_WEIGHT) / 8;
+        } while (!averageLatencyMillis.compareAndSet(current, updated));
+    }
+
+    public void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= FAILURE_THRESHOLD) {
+            openUntil.set(currentTimeMillis() + OPEN_CIRCUIT_MILLIS);
+        }
+    }
+
+    /**
+     * Clock of the circuit breaker, overridden by tests.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Decides whether the failure is a connectivity problem that should trip the circuit breaker and fail over to
+     * another URL, as opposed to an error answered by the server itself (bad credentials, missing repository etc.).
+     *
+     * @param e The request failure
+     * @return True for connection failures and timeouts
+     */
+    public static boolean isConnectionError(IOException e) {
+        // socket and connect timeouts are both InterruptedIOExceptions
+        return e instanceof ConnectException || e instanceof NoRouteToHostException ||
+                e instanceof UnknownHostException || e instanceof InterruptedIOException;
+    }
+}
@@ -41,8 +41,11 @@ import hudson.util.XStream2;
 import net.sf.json.JSONObject;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
 import org.jfrog.hudson.action.ArtifactoryProjectAction;
+import org.jfrog.hudson.action.PromoteBuildAction;
 import org.jfrog.hudson.maven2.ArtifactsDeployer;
 import org.jfrog.hudson.maven2.BuildInfoDeployer;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.ServerStatistics;
 import org.jfrog.hudson.util.CredentialResolver;
 import org.jfrog.hudson.util.Credentials;
 import org.jfrog.hudson.util.FormValidations;
@@ -53,6 +56,7 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -94,6 +98,15 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
     private final boolean licenseAutoDiscovery;
     private final boolean disableLicenseAutoDiscovery;
     private final boolean discardOldBuilds;
+    /**
+     * Carry over the build info of modules skipped by an incremental maven build from their last build
+     */
+    private final boolean incrementalBuildInfo;
+    /**
+     * Deploy release artifacts without the build properties and set them afterwards on each version folder created by
+     * the build
+     */
+    private final boolean deferBuildProperties;
 
 
     @DataBoundConstructor
@@ -101,7 +114,8 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
             IncludesExcludes artifactDeploymentPatterns, Credentials overridingDeployerCredentials,
             boolean includeEnvVars, boolean deployBuildInfo, boolean evenIfUnstable, boolean runChecks,
             String violationRecipients, boolean includePublishArtifacts, String scopes,
-            boolean disableLicenseAutoDiscovery, boolean discardOldBuilds) {
+            boolean disableLicenseAutoDiscovery, boolean discardOldBuilds, boolean incrementalBuildInfo,
+            boolean deferBuildProperties) {
         this.details = details;
         this.deployArtifacts = deployArtifacts;
         this.artifactDeploymentPatterns = artifactDeploymentPatterns;
@@ -114,6 +128,8 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
         this.scopes = scopes;
         this.disableLicenseAutoDiscovery = disableLicenseAutoDiscovery;
         this.discardOldBuilds = discardOldBuilds;
+        this.incrementalBuildInfo = incrementalBuildInfo;
+        this.deferBuildProperties = deferBuildProperties;
         this.licenseAutoDiscovery = !disableLicenseAutoDiscovery;
         this.skipBuildInfoDeploy = !deployBuildInfo;
 
@@ -139,6 +155,14 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
         return discardOldBuilds;
     }
 
+    public boolean isIncrementalBuildInfo() {
+        return incrementalBuildInfo;
+    }
+
+    public boolean isDeferBuildProperties() {
+        return deferBuildProperties;
+    }
+
     public boolean isOverridingDefaultDeployer() {
         return (getOverridingDeployerCredentials() != null);
     }
@@ -244,23 +268,50 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
 
         ArtifactoryServer server = getArtifactoryServer();
         Credentials preferredDeployer = CredentialResolver.getPreferredDeployer(this, server);
-        ArtifactoryBuildInfoClient client =
-                server.createArtifactoryClient(preferredDeployer.getUsername(), preferredDeployer.getPassword());
+        ArtifactoryEndpoint endpoint = null;
+        ArtifactoryBuildInfoClient client = null;
         try {
-            verifySupportedArtifactoryVersion(client);
+            for (Iterator<ArtifactoryEndpoint> iter = server.getDeploymentEndpoints().iterator(); client == null; ) {
+                endpoint = iter.next();
+                if (!endpoint.tryAcquireProbe() && iter.hasNext()) {
+                    // another build is probing this endpoint
+                    continue;
+                }
+                client = server.createArtifactoryClient(endpoint.getUrl(), preferredDeployer.getUsername(),
+                        preferredDeployer.getPassword());
+                try {
+                    verifySupportedArtifactoryVersion(client, server, endpoint);
+                } catch (IOException e) {
+                    client.shutdown();
+                    client = null;
+                    if (!ArtifactoryEndpoint.isConnectionError(e) || !iter.hasNext()) {
+                        throw e;
+                    }
+                    listener.getLogger().println("Failed to connect to " + endpoint.getUrl() + " (" +
+                            e.getMessage() + "), failing over to the next Artifactory URL");
+                }
+            }
             if (deployArtifacts) {
-                new ArtifactsDeployer(this, client, mavenBuild, listener).deploy();
+                new ArtifactsDeployer(this, client, endpoint.getUrl(), mavenBuild, listener).deploy();
             }
             if (!skipBuildInfoDeploy) {
                 new BuildInfoDeployer(this, client, mavenBuild, listener).deploy();
                 // add the result action
                 build.getActions().add(new BuildInfoResultAction(getArtifactoryName(), build));
+                build.getActions().add(new PromoteBuildAction(build));
             }
             return true;
         } catch (Exception e) {
+            // connection lost while deploying, failures of the version check are recorded by the check itself
+            if (client != null && e instanceof IOException &&
+                    ArtifactoryEndpoint.isConnectionError((IOException) e)) {
+                endpoint.recordFailure();
+            }
             e.printStackTrace(listener.error(e.getMessage()));
         } finally {
-            client.shutdown();
+            if (client != null) {
+                client.shutdown();
+            }
         }
 
         // failed
@@ -277,10 +328,26 @@ public class ArtifactoryRedeployPublisher extends Recorder implements DeployerOv
         });
     }
 
-    private void verifySupportedArtifactoryVersion(ArtifactoryBuildInfoClient client) throws Exception {
+    private void verifySupportedArtifactoryVersion(ArtifactoryBuildInfoClient client, ArtifactoryServer server,
+            ArtifactoryEndpoint endpoint) throws Exception {
         // get the version of artifactory, if it is an unsupported version, an UnsupportedOperationException
         // will be thrown, and no deployment will commence.
-        client.verifyCompatibleArtifactoryVersion();
+        ServerStatistics statistics = server.getStatistics();
+        long start = statistics.requestStarted();
+        long startMillis = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            client.verifyCompatibleArtifactoryVersion();
+            success = true;
+            endpoint.recordSuccess(System.currentTimeMillis() - startMillis);
+        } catch (IOException e) {
+            if (ArtifactoryEndpoint.isConnectionError(e)) {
+                endpoint.recordFailure();
+            }
+            throw e;
+        } finally {
+            statistics.requestCompleted(Operation.VERSION, start, 0, success);
+        }
     }
 
     protected List<MavenAbstractArtifactRecord> getArtifactRecordActions(MavenModuleSetBuild build) {
@@ -27,12 +27,16 @@ import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.util.NullLog;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
 import org.jfrog.build.client.ArtifactoryHttpClient;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.PublishingStatistics;
+import org.jfrog.hudson.stats.ServerStatistics;
 import org.jfrog.hudson.util.Credentials;
 import org.kohsuke.stapler.DataBoundConstructor;
 
 import java.io.IOException;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,6 +52,11 @@ public class ArtifactoryServer {
     private static final int DEFAULT_CONNECTION_TIMEOUT = 300;    // 5 Minutes
 
     private final String url;
+    /**
+     * Optional comma or whitespace separated URLs of other nodes serving the same Artifactory. Reads are balanced
+     * across all the URLs and deployments fail over to them.
+     */
+    private final String additionalUrls;
 
     private final Credentials deployerCredentials;
     private Credentials resolverCredentials;
@@ -64,9 +73,10 @@ public class ArtifactoryServer {
     private transient volatile List<VirtualRepository> virtualRepositories;
 
     @DataBoundConstructor
-    public ArtifactoryServer(String url, Credentials deployerCredentials, Credentials resolverCredentials, int timeout,
-            boolean bypassProxy) {
+    public ArtifactoryServer(String url, String additionalUrls, Credentials deployerCredentials,
+            Credentials resolverCredentials, int timeout, boolean bypassProxy) {
         this.url = StringUtils.removeEnd(url, "/");
+        this.additionalUrls = additionalUrls;
         this.deployerCredentials = deployerCredentials;
         this.resolverCredentials = resolverCredentials;
         this.timeout = timeout > 0 ? timeout : DEFAULT_CONNECTION_TIMEOUT;
@@ -81,6 +91,10 @@ public class ArtifactoryServer {
         return url;
     }
 
+    public String getAdditionalUrls() {
+        return additionalUrls;
+    }
+
     public Credentials getDeployerCredentials() {
         return deployerCredentials;
     }
@@ -98,11 +112,15 @@ public class ArtifactoryServer {
     }
 
     public List<String> getRepositoryKeys() {
-        Credentials resolvingCredentials = getResolvingCredentials();
         try {
-            ArtifactoryBuildInfoClient client = createArtifactoryClient(resolvingCredentials.getUsername(),
-                    resolvingCredentials.getPassword());
-            repositories = client.getLocalRepositoriesKeys();
+            repositories = executeRead(Operation.REPOSITORY_LIST, new ReadRequest<List<String>>() {
+                @Override
+                List<String> execute(String url, Credentials credentials) throws IOException {
+                    ArtifactoryBuildInfoClient client = createArtifactoryClient(url, credentials.getUsername(),
+                            credentials.getPassword());
+                    return client.getLocalRepositoriesKeys();
+                }
+            });
         } catch (IOException e) {
             log.log(Level.WARNING, "Failed to obtain list of local repositories: " + e.getMessage());
             return Lists.newArrayList();
@@ -140,11 +158,15 @@ public class ArtifactoryServer {
     }
 
     public List<VirtualRepository> getVirtualRepositoryKeys() {
-        Credentials resolvingCredentials = getResolvingCredentials();
         try {
-            ArtifactoryBuildInfoClient client = createArtifactoryClient(resolvingCredentials.getUsername(),
-                    resolvingCredentials.getPassword());
-            List<String> keys = client.getVirtualRepositoryKeys();
+            List<String> keys = executeRead(Operation.REPOSITORY_LIST, new ReadRequest<List<String>>() {
+                @Override
+                List<String> execute(String url, Credentials credentials) throws IOException {
+                    ArtifactoryBuildInfoClient client = createArtifactoryClient(url, credentials.getUsername(),
+                            credentials.getPassword());
+                    return client.getVirtualRepositoryKeys();
+                }
+            });
             virtualRepositories = Lists.newArrayList(Lists.transform(keys, new Function<String, VirtualRepository>() {
                 public VirtualRepository apply(String from) {
                     return new VirtualRepository(from, from);
@@ -161,22 +183,182 @@ public class ArtifactoryServer {
     }
 
     public boolean isPowerPack() {
-
-        Credentials resolvingCredentials = getResolvingCredentials();
-
         try {
-            ArtifactoryHttpClient client = new ArtifactoryHttpClient(url, resolvingCredentials.getUsername(),
-                    resolvingCredentials.getPassword(), new NullLog());
-            ArtifactoryHttpClient.Version version = client.getVersion();
-            return version.hasAddons();
+            return executeRead(Operation.VERSION, new ReadRequest<Boolean>() {
+                @Override
+                Boolean execute(String url, Credentials credentials) throws IOException {
+                    ArtifactoryHttpClient client = new ArtifactoryHttpClient(url, credentials.getUsername(),
+                            credentials.getPassword(), new NullLog());
+                    ArtifactoryHttpClient.Version version = client.getVersion();
+                    return version.hasAddons();
+                }
+            });
         } catch (IOException e) {
             log.log(Level.WARNING, "Failed to obtain list of virtual repositories: " + e.getMessage());
         }
         return false;
     }
 
+    /**
+     * @return Publishing statistics of this server
+     */
+    public ServerStatistics getStatistics() {
+        return PublishingStatistics.forServer(url);
+    }
+
+    /**
+     * @return All the URLs of this server, the main URL first
+     */
+    public List<String> getUrls() {
+        List<String> urls = Lists.newArrayList(url);
+        if (StringUtils.isNotBlank(additionalUrls)) {
+            for (String additionalUrl : StringUtils.split(additionalUrls, ", \t\r\n")) {
+                additionalUrl = StringUtils.removeEnd(additionalUrl, "/");
+                if (!urls.contains(additionalUrl)) {
+                    urls.add(additionalUrl);
+                }
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the endpoints to try, in order, for deployments: the main URL first followed by the additional URLs, with
+     * endpoints whose circuit is open moved to the end. Ordering has no side effects; callers that send requests must
+     * call {@link ArtifactoryEndpoint#tryAcquireProbe()} before using an endpoint and record the outcome.
+     *
+     * @return The deployment endpoints, never empty
+     */
+    public List<ArtifactoryEndpoint> getDeploymentEndpoints() {
+        List<ArtifactoryEndpoint> available = Lists.newArrayList();
+        List<ArtifactoryEndpoint> unavailable = Lists.newArrayList();
+        for (String endpointUrl : getUrls()) {
+            ArtifactoryEndpoint endpoint = ArtifactoryEndpoint.forUrl(endpointUrl);
+            if (endpoint.isAvailable()) {
+                available.add(endpoint);
+            } else {
+                unavailable.add(endpoint);
+            }
+        }
+        available.addAll(unavailable);
+        return available;
+    }
+
+    /**
+     * @return The URL builds should currently talk to. Does not acquire a probe of a half-open endpoint, so it is safe
+     *         for callers that do not record the outcome of their requests.
+     */
+    public String getPreferredUrl() {
+        return getDeploymentEndpoints().get(0).getUrl();
+    }
+
+    /**
+     * Returns the endpoints to try, in order, for read requests: the endpoints whose circuit is closed by ascending
+     * latency (endpoints not measured yet first), then the endpoints whose cool-down has passed and may be probed, and
+     * last the endpoints whose circuit is open.
+     */
+    List<ArtifactoryEndpoint> getReadEndpoints() {
+        List<ArtifactoryEndpoint> closed = Lists.newArrayList();
+        List<ArtifactoryEndpoint> halfOpen = Lists.newArrayList();
+        List<ArtifactoryEndpoint> open = Lists.newArrayList();
+        for (String endpointUrl : getUrls()) {
+            ArtifactoryEndpoint endpoint = ArtifactoryEndpoint.forUrl(endpointUrl);
+            if (!endpoint.isCircuitOpen()) {
+                closed.add(endpoint);
+            } else if (endpoint.isAvailable()) {
+                halfOpen.add(endpoint);
+            } else {
+                open.add(endpoint);
+            }
+        }
+        Collections.sort(closed, new Comparator<ArtifactoryEndpoint>() {
+            public int compare(ArtifactoryEndpoint o1, ArtifactoryEndpoint o2) {
+                long l1 = o1.getAverageLatencyMillis();
+                long l2 = o2.getAverageLatencyMillis();
+                return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+            }
+        });
+        closed.addAll(halfOpen);
+        closed.addAll(open);
+        return closed;
+    }
+
+    /**
+     * Executes a read request against the read endpoints in order, failing over to the next one on connection errors.
+     */
+    private <T> T executeRead(Operation operation, ReadRequest<T> request) throws IOException {
+        Credentials resolvingCredentials = getResolvingCredentials();
+        ServerStatistics statistics = getStatistics();
+        IOException lastError = null;
+        for (Iterator<ArtifactoryEndpoint> iter = getReadEndpoints().iterator(); iter.hasNext(); ) {
+            ArtifactoryEndpoint endpoint = iter.next();
+            if (!endpoint.tryAcquireProbe() && iter.hasNext()) {
+                // another request is probing this endpoint
+                continue;
+            }
+            long start = statistics.requestStarted();
+            long startMillis = System.currentTimeMillis();
+            boolean success = false;
+            try {
+                T result = request.execute(endpoint.getUrl(), resolvingCredentials);
+                success = true;
+                endpoint.recordSuccess(System.currentTimeMillis() - startMillis);
+                return result;
+            } catch (IOException e) {
+                if (!ArtifactoryEndpoint.isConnectionError(e)) {
+                    throw e;
+                }
+                endpoint.recordFailure();
+                lastError = e;
+            } finally {
+                statistics.requestCompleted(operation, start, 0, success);
+            }
+        }
+        throw lastError;
+    }
+
+    private abstract static class ReadRequest<T> {
+        abstract T execute(String url, Credentials credentials) throws IOException;
+    }
+
+    /**
+     * Creates a client of the URL builds should currently deploy to.
+     *
+     * @see #getPreferredUrl()
+     */
     public ArtifactoryBuildInfoClient createArtifactoryClient(String userName, String password) {
-        ArtifactoryBuildInfoClient client = new ArtifactoryBuildInfoClient(url, userName, password, new NullLog());
+        return createArtifactoryClient(getPreferredUrl(), userName, password);
+    }
+
+    /**
+     * Creates a client of one of the URLs of this server.
+     *
+     * @param endpointUrl One of the {@link #getUrls()}
+     */
+    public ArtifactoryBuildInfoClient createArtifactoryClient(String endpointUrl, String userName, String password) {
+        ArtifactoryBuildInfoClient client =
+                new ArtifactoryBuildInfoClient(endpointUrl, userName, password, new NullLog());
+        client.setConnectionTimeout(timeout);
+
+        ProxyConfiguration proxyConfiguration = Hudson.getInstance().proxy;
+        if (!bypassProxy && proxyConfiguration != null) {
+            client.setProxyConfiguration(proxyConfiguration.name,
+                    proxyConfiguration.port,
+                    proxyConfiguration.getUserName(),
+                    proxyConfiguration.getPassword());
+        }
+
+        return client;
+    }
+
+    /**
+     * Creates a plain HTTP client of one of the URLs of this server, for REST calls not covered by
+     * {@link ArtifactoryBuildInfoClient}.
+     *
+     * @param endpointUrl One of the {@link #getUrls()}
+     */
+    public ArtifactoryHttpClient createHttpClient(String endpointUrl, String userName, String password) {
+        ArtifactoryHttpClient client = new ArtifactoryHttpClient(endpointUrl, userName, password, new NullLog());
         client.setConnectionTimeout(timeout);
 
         ProxyConfiguration proxyConfiguration = Hudson.getInstance().proxy;
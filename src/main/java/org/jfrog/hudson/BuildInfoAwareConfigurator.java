@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson;
+
+import org.jfrog.hudson.util.IncludesExcludes;
+
+/**
+ * The build info settings shared by the configurators of the Maven 3, Gradle and Ivy integrations, which pass them on
+ * to the build info extractors.
+ *
+ * @see org.jfrog.hudson.util.BuildInfoPropertyModel
+ */
+public interface BuildInfoAwareConfigurator extends DeployerOverrider {
+
+    /**
+     * @return The key of the repository artifacts are deployed to
+     */
+    String getRepositoryKey();
+
+    IncludesExcludes getArtifactDeploymentPatterns();
+
+    boolean isIncludeEnvVars();
+
+    boolean isRunChecks();
+
+    boolean isIncludePublishArtifacts();
+
+    boolean isLicenseAutoDiscovery();
+
+    boolean isDiscardOldBuilds();
+}
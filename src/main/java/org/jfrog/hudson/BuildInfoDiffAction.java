@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson;
+
+import com.google.common.collect.Maps;
+import hudson.model.Action;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.Artifact;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Dependency;
+import org.jfrog.build.api.Module;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shows on the build page what changed in the published build info compared to the previous published build: added,
+ * removed and changed (different checksum) modules, artifacts and dependencies. Modules are matched on their id without
+ * the version (groupId:artifactId), so a version bump is reported as a version change rather than as every module,
+ * artifact and dependency being removed and added again.
+ * <p/>
+ * The action is saved with the build, only the first {@link #MAX_CHANGES_PER_SECTION} changes of each section are kept.
+ */
+public class BuildInfoDiffAction implements Action {
+    public static final int MAX_CHANGES_PER_SECTION = 100;
+
+    private final int previousBuildNumber;
+    private final List<Section> sections = new ArrayList<Section>();
+
+    public BuildInfoDiffAction(int previousBuildNumber, Build previous, Build current) {
+        this.previousBuildNumber = previousBuildNumber;
+        Map<String, Change> previousModules = modules(previous);
+        Map<String, Change> currentModules = modules(current);
+        addSection("Added modules", added(previousModules, currentModules));
+        addSection("Removed modules", added(currentModules, previousModules));
+        List<String> versionChanges = new ArrayList<String>();
+        for (Map.Entry<String, Change> module : currentModules.entrySet()) {
+            Change previousModule = previousModules.get(module.getKey());
+            if (previousModule != null && !previousModule.value.equals(module.getValue().value)) {
+                versionChanges.add(module.getKey() + " " + previousModule.value + " -> " + module.getValue().value);
+            }
+        }
+        addSection("Changed module versions", versionChanges);
+        Map<String, Change> previousArtifacts = artifacts(previous);
+        Map<String, Change> currentArtifacts = artifacts(current);
+        addSection("Added artifacts", added(previousArtifacts, currentArtifacts));
+        addSection("Removed artifacts", added(currentArtifacts, previousArtifacts));
+        addSection("Changed artifacts", changed(previousArtifacts, currentArtifacts));
+        Map<String, Change> previousDependencies = dependencies(previous);
+        Map<String, Change> currentDependencies = dependencies(current);
+        addSection("Added dependencies", added(previousDependencies, currentDependencies));
+        addSection("Removed dependencies", added(currentDependencies, previousDependencies));
+        addSection("Changed dependencies", changed(previousDependencies, currentDependencies));
+    }
+
+    public String getIconFileName() {
+        // only shown as a build summary
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "Build Info Changes";
+    }
+
+    public String getUrlName() {
+        return null;
+    }
+
+    public int getPreviousBuildNumber() {
+        return previousBuildNumber;
+    }
+
+    public boolean isEmpty() {
+        return sections.isEmpty();
+    }
+
+    /**
+     * @return The non empty change sections, in display order
+     */
+    public List<Section> getSections() {
+        return Collections.unmodifiableList(sections);
+    }
+
+    private void addSection(String title, List<String> changes) {
+        if (!changes.isEmpty()) {
+            Collections.sort(changes);
+            List<String> kept = changes.size() > MAX_CHANGES_PER_SECTION ?
+                    new ArrayList<String>(changes.subList(0, MAX_CHANGES_PER_SECTION)) : changes;
+            sections.add(new Section(title, changes.size(), kept));
+        }
+    }
+
+    /**
+     * @return Labels of the entries only found in the second map
+     */
+    private static List<String> added(Map<String, Change> from, Map<String, Change> to) {
+        List<String> added = new ArrayList<String>();
+        for (Map.Entry<String, Change> entry : to.entrySet()) {
+            if (!from.containsKey(entry.getKey())) {
+                added.add(entry.getValue().label);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return Labels of the entries found in both maps with different values
+     */
+    private static List<String> changed(Map<String, Change> from, Map<String, Change> to) {
+        List<String> changed = new ArrayList<String>();
+        for (Map.Entry<String, Change> entry : to.entrySet()) {
+            Change previous = from.get(entry.getKey());
+            if (previous != null && !StringUtils.equals(previous.value, entry.getValue().value)) {
+                changed.add(entry.getValue().label);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @return Module key to the module version
+     */
+    private static Map<String, Change> modules(Build build) {
+        Map<String, Change> modules = Maps.newHashMap();
+        for (Module module : getModules(build)) {
+            String key = getModuleKey(module);
+            modules.put(key, new Change(key, getModuleVersion(module)));
+        }
+        return modules;
+    }
+
+    /**
+     * @return Module key and artifact name, with the module version masked, to the artifact md5
+     */
+    private static Map<String, Change> artifacts(Build build) {
+        Map<String, Change> artifacts = Maps.newHashMap();
+        for (Module module : getModules(build)) {
+            if (module.getArtifacts() != null) {
+                String moduleKey = getModuleKey(module);
+                String version = getModuleVersion(module);
+                for (Artifact artifact : module.getArtifacts()) {
+                    String name = artifact.getName();
+                    String key = moduleKey + " " +
+                            (StringUtils.isNotEmpty(version) ? StringUtils.replace(name, version, "{version}") : name);
+                    artifacts.put(key, new Change(moduleKey + " " + name, artifact.getMd5()));
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * @return Module key and dependency id to the dependency md5
+     */
+    private static Map<String, Change> dependencies(Build build) {
+        Map<String, Change> dependencies = Maps.newHashMap();
+        for (Module module : getModules(build)) {
+            if (module.getDependencies() != null) {
+                String moduleKey = getModuleKey(module);
+                for (Dependency dependency : module.getDependencies()) {
+                    String key = moduleKey + " " + dependency.getId();
+                    dependencies.put(key, new Change(key, dependency.getMd5()));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return The module id without the version, module ids are groupId:artifactId:version
+     */
+    private static String getModuleKey(Module module) {
+        String id = module.getId();
+        int versionSeparator = id.lastIndexOf(':');
+        return versionSeparator > id.indexOf(':') ? id.substring(0, versionSeparator) : id;
+    }
+
+    private static String getModuleVersion(Module module) {
+        String id = module.getId();
+        int versionSeparator = id.lastIndexOf(':');
+        return versionSeparator > id.indexOf(':') ? id.substring(versionSeparator + 1) : "";
+    }
+
+    private static List<Module> getModules(Build build) {
+        List<Module> modules = build.getModules();
+        return modules != null ? modules : Collections.<Module>emptyList();
+    }
+
+    /**
+     * A titled list of changes. Only the first {@link #MAX_CHANGES_PER_SECTION} changes are kept, the total count is
+     * kept for display.
+     */
+    public static class Section {
+        private final String title;
+        private final int total;
+        private final List<String> changes;
+
+        public Section(String title, int total, List<String> changes) {
+            this.title = title;
+            this.total = total;
+            this.changes = changes;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<String> getChanges() {
+            return changes;
+        }
+
+        public boolean isTruncated() {
+            return total > changes.size();
+        }
+    }
+
+    /**
+     * What an entry of the build info is displayed as and the value compared between the builds. Only used while
+     * computing the sections.
+     */
+    private static class Change {
+        private final String label;
+        private final String value;
+
+        private Change(String label, String value) {
+            this.label = label;
+            this.value = value;
+        }
+    }
+}
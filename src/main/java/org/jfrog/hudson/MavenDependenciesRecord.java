@@ -19,6 +19,7 @@ package org.jfrog.hudson;
 import hudson.maven.MavenBuild;
 import hudson.model.Action;
 
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -28,11 +29,21 @@ import java.util.Set;
  */
 public class MavenDependenciesRecord implements Action {
     private final MavenBuild build;
-    private final Set<MavenDependency> dependencies;
+    /**
+     * @deprecated Only here to load records created by version 1.4.3 and below, the dependencies are now kept in the
+     *             {@link #dependencyGraph}. Always null in new instances so they are not stored twice.
+     */
+    @Deprecated
+    private Set<MavenDependency> dependencies;
+    private MavenDependencyGraph dependencyGraph;
 
     public MavenDependenciesRecord(MavenBuild build, Set<MavenDependency> dependencies) {
+        this(build, new MavenDependencyGraph(dependencies, Collections.<String, String>emptyMap()));
+    }
+
+    public MavenDependenciesRecord(MavenBuild build, MavenDependencyGraph dependencyGraph) {
         this.build = build;
-        this.dependencies = dependencies;
+        this.dependencyGraph = dependencyGraph;
     }
 
     public String getIconFileName() {
@@ -48,6 +59,24 @@ public class MavenDependenciesRecord implements Action {
     }
 
     public Set<MavenDependency> getDependencies() {
-        return dependencies;
+        return dependencyGraph.getDependencies();
+    }
+
+    /**
+     * @return The dependency graph of the module. Records created by older versions have no parents in their graph.
+     */
+    public MavenDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    /**
+     * Converts records created before the dependency graph was recorded.
+     */
+    private Object readResolve() {
+        if (dependencyGraph == null && dependencies != null) {
+            dependencyGraph = new MavenDependencyGraph(dependencies, Collections.<String, String>emptyMap());
+            dependencies = null;
+        }
+        return this;
     }
 }
@@ -19,19 +19,114 @@ package org.jfrog.hudson;
 import java.io.Serializable;
 
 /**
- * Captures information of a maven dependency.
+ * Captures information of a maven dependency. Immutable, the coordinate parts are interned so dependencies shared by
+ * many modules and builds share their strings, and the id is derived from the coordinates rather than stored.
  *
  * @author Yossi Shaul
  */
 public class MavenDependency implements Serializable {
-    public String id;
-    public String groupId;
-    public String artifactId;
-    public String version;
-    public String type;
-    public String classifier;
-    public String scope;
-    public String fileName;
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+    /**
+     * Only set if different from the version (i.e., timestamped snapshots)
+     */
+    private final String baseVersion;
+    private final String type;
+    private final String classifier;
+    private final String scope;
+    private final String fileName;
+    private transient int hash;
+    /**
+     * The derived id, computed on first use
+     */
+    private transient String derivedId;
+
+    /**
+     * @deprecated Only here to keep compatibility with version 1.4.3 and below (part of the xstream
+     *             de-serialization), the id is now derived from the coordinates. Always null in new instances so it
+     *             is not written to new build records.
+     */
+    @Deprecated
+    private String id;
+
+    public MavenDependency(String groupId, String artifactId, String version, String baseVersion, String type,
+            String classifier, String scope, String fileName) {
+        this.groupId = intern(groupId);
+        this.artifactId = intern(artifactId);
+        this.version = intern(version);
+        this.baseVersion = baseVersion == null || baseVersion.equals(version) ? null : intern(baseVersion);
+        this.type = intern(type);
+        this.classifier = intern(classifier);
+        this.scope = intern(scope);
+        this.fileName = intern(fileName);
+        this.hash = computeHash();
+    }
+
+    /**
+     * @return The dependency id in the same format maven uses: groupId:artifactId:type[:classifier]:baseVersion
+     */
+    public String getId() {
+        String result = derivedId;
+        if (result == null) {
+            StringBuilder builder =
+                    new StringBuilder(groupId).append(':').append(artifactId).append(':').append(type);
+            if (classifier != null) {
+                builder.append(':').append(classifier);
+            }
+            result = builder.append(':').append(getBaseVersion()).toString();
+            derivedId = result;
+        }
+        return result;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getBaseVersion() {
+        return baseVersion != null ? baseVersion : version;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getClassifier() {
+        return classifier;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Interns the strings and restores the hash, also converts records created before the id was derived.
+     */
+    private Object readResolve() {
+        if (groupId == null) {
+            // blank instance created by the reflection provider through java serialization, not a stored record
+            return this;
+        }
+        String resolvedBaseVersion = baseVersion;
+        if (resolvedBaseVersion == null && id != null) {
+            resolvedBaseVersion = id.substring(id.lastIndexOf(':') + 1);
+        }
+        return new MavenDependency(groupId, artifactId, version, resolvedBaseVersion, type, classifier, scope,
+                fileName);
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -44,15 +139,29 @@ public class MavenDependency implements Serializable {
 
         MavenDependency that = (MavenDependency) o;
 
-        if (!id.equals(that.id)) {
-            return false;
-        }
-
-        return true;
+        // same as comparing the ids
+        return hash == that.hash && groupId.equals(that.groupId) && artifactId.equals(that.artifactId) &&
+                type.equals(that.type) && getBaseVersion().equals(that.getBaseVersion()) &&
+                (classifier != null ? classifier.equals(that.classifier) : that.classifier == null);
     }
 
     @Override
     public int hashCode() {
-        return id.hashCode();
+        return hash;
+    }
+
+    private int computeHash() {
+        int result = groupId.hashCode();
+        result = 31 * result + artifactId.hashCode();
+        result = 31 * result + type.hashCode();
+        result = 31 * result + (classifier != null ? classifier.hashCode() : 0);
+        result = 31 * result + getBaseVersion().hashCode();
+        return result;
+    }
+
+    private static String intern(String value) {
+        return value != null ? value.intern() : null;
     }
+
+    private static final long serialVersionUID = 2L;
 }
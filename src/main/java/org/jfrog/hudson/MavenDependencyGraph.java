@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The resolved dependencies of a maven module and the tree they form, kept as a compact parent-pointer adjacency list:
+ * the dependencies sorted by id and, for each of them, the index of the dependency that pulled it in (-1 for direct
+ * dependencies). This is the only copy of the dependencies stored in the build record.
+ */
+public class MavenDependencyGraph implements Serializable {
+    private static final int DIRECT = -1;
+
+    private static final Comparator<MavenDependency> BY_ID = new Comparator<MavenDependency>() {
+        public int compare(MavenDependency o1, MavenDependency o2) {
+            return o1.getId().compareTo(o2.getId());
+        }
+    };
+
+    private final MavenDependency[] nodes;
+    private final int[] parents;
+
+    /**
+     * @param dependencies The resolved dependencies of the module
+     * @param parentsById  Dependency id to the id of the dependency that pulled it in. Direct dependencies may be
+     *                     mapped to null or left out. Parents which are not one of the dependencies are ignored.
+     */
+    public MavenDependencyGraph(Collection<MavenDependency> dependencies, Map<String, String> parentsById) {
+        nodes = dependencies.toArray(new MavenDependency[dependencies.size()]);
+        Arrays.sort(nodes, BY_ID);
+        parents = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            String parent = parentsById.get(nodes[i].getId());
+            int parentIndex = parent != null ? indexOf(parent) : DIRECT;
+            parents[i] = parentIndex >= 0 ? parentIndex : DIRECT;
+        }
+    }
+
+    /**
+     * @return The dependencies of the module, ordered by id
+     */
+    public Set<MavenDependency> getDependencies() {
+        return Collections.unmodifiableSet(new LinkedHashSet<MavenDependency>(Arrays.asList(nodes)));
+    }
+
+    /**
+     * @param id Dependency id
+     * @return Id of the dependency that pulled the given one in, null if it is a direct dependency or not part of the
+     *         graph
+     */
+    public String getParent(String id) {
+        int index = indexOf(id);
+        if (index < 0 || parents[index] == DIRECT) {
+            return null;
+        }
+        return nodes[parents[index]].getId();
+    }
+
+    /**
+     * @return Number of dependencies in the graph
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    private int indexOf(String id) {
+        int low = 0;
+        int high = nodes.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = nodes[middle].getId().compareTo(id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private static final long serialVersionUID = 2L;
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.action;
+
+import hudson.maven.MavenModuleSet;
+import hudson.model.AbstractBuild;
+import hudson.model.Item;
+import hudson.model.TaskAction;
+import hudson.model.TaskListener;
+import hudson.model.TaskThread;
+import hudson.security.ACL;
+import hudson.security.Permission;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.client.ArtifactoryHttpClient;
+import org.jfrog.hudson.ArtifactoryRedeployPublisher;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.ServerStatistics;
+import org.jfrog.hudson.util.CredentialResolver;
+import org.jfrog.hudson.util.Credentials;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Promotes the artifacts of a build, as recorded in its build info, to another repository. Artifactory copies or moves
+ * the artifacts server side, nothing is uploaded again. A dry run reports what would be promoted without changing
+ * anything.
+ */
+public class PromoteBuildAction extends TaskAction {
+
+    private final AbstractBuild build;
+
+    /**
+     * Output of the last promotion, kept in memory only so the result of a dry run can be reviewed
+     */
+    private transient volatile String lastPromotionLog;
+
+    public PromoteBuildAction(AbstractBuild build) {
+        this.build = build;
+    }
+
+    public AbstractBuild getBuild() {
+        return build;
+    }
+
+    public String getIconFileName() {
+        return hasPermission() ? "/plugin/artifactory/images/artifactory-icon.png" : null;
+    }
+
+    public String getDisplayName() {
+        return "Artifactory Release Promotion";
+    }
+
+    public String getUrlName() {
+        return hasPermission() ? "promote" : null;
+    }
+
+    @Override
+    protected Permission getPermission() {
+        return Item.CONFIGURE;
+    }
+
+    @Override
+    protected ACL getACL() {
+        return build.getParent().getACL();
+    }
+
+    private boolean hasPermission() {
+        return getACL().hasPermission(getPermission());
+    }
+
+    public String getLastPromotionLog() {
+        return lastPromotionLog;
+    }
+
+    /**
+     * @return The repositories the build can be promoted to, release repositories first
+     */
+    public List<String> getRepositoryKeys() {
+        ArtifactoryRedeployPublisher publisher = getPublisher();
+        if (publisher == null || publisher.getArtifactoryServer() == null) {
+            return Collections.emptyList();
+        }
+        return publisher.getArtifactoryServer().getReleaseRepositoryKeysFirst();
+    }
+
+    /**
+     * @return The releases deployment repository of the job, selected by default
+     */
+    public String getDefaultRepositoryKey() {
+        ArtifactoryRedeployPublisher publisher = getPublisher();
+        return publisher != null ? publisher.getRepositoryKey() : null;
+    }
+
+    /**
+     * Starts the promotion in the background and redirects to the progress page.
+     */
+    public synchronized void doSubmit(StaplerRequest req, StaplerResponse resp) throws IOException, ServletException {
+        getACL().checkPermission(getPermission());
+        if (!"POST".equals(req.getMethod())) {
+            // starting a promotion changes state, never let a link or a crawler trigger it
+            resp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST is required");
+            return;
+        }
+        if (workerThread != null) {
+            // a promotion is already running
+            resp.sendRedirect(".");
+            return;
+        }
+        String targetRepository = req.getParameter("targetRepository");
+        if (StringUtils.isBlank(targetRepository)) {
+            throw new ServletException("No target repository selected");
+        }
+        boolean copy = "copy".equals(req.getParameter("mode"));
+        boolean includeDependencies = req.getParameter("includeDependencies") != null;
+        boolean dryRun = req.getParameter("dryRun") != null;
+        new PromotionWorker(targetRepository, copy, includeDependencies, req.getParameter("scopes"), dryRun).start();
+        resp.sendRedirect(".");
+    }
+
+    private ArtifactoryRedeployPublisher getPublisher() {
+        if (!(build.getParent() instanceof MavenModuleSet)) {
+            return null;
+        }
+        return ((MavenModuleSet) build.getParent()).getPublishersList().get(ArtifactoryRedeployPublisher.class);
+    }
+
+    private final class PromotionWorker extends TaskThread {
+        private final String targetRepository;
+        private final boolean copy;
+        private final boolean includeDependencies;
+        private final String scopes;
+        private final boolean dryRun;
+
+        private PromotionWorker(String targetRepository, boolean copy, boolean includeDependencies, String scopes,
+                boolean dryRun) {
+            super(PromoteBuildAction.this, ListenerAndText.forMemory());
+            this.targetRepository = targetRepository;
+            this.copy = copy;
+            this.includeDependencies = includeDependencies;
+            this.scopes = scopes;
+            this.dryRun = dryRun;
+        }
+
+        @Override
+        protected void perform(TaskListener listener) throws Exception {
+            StringBuilder summary = new StringBuilder();
+            try {
+                promote(listener, summary);
+            } finally {
+                lastPromotionLog = summary.toString();
+            }
+        }
+
+        private void promote(TaskListener listener, StringBuilder summary) throws IOException {
+            PrintStream logger = listener.getLogger();
+            ArtifactoryRedeployPublisher publisher = getPublisher();
+            if (publisher == null || publisher.getArtifactoryServer() == null) {
+                throw new IOException("The job is no longer configured to publish to Artifactory");
+            }
+            ArtifactoryServer server = publisher.getArtifactoryServer();
+            Credentials deployer = CredentialResolver.getPreferredDeployer(publisher, server);
+            String buildName = build.getParent().getDisplayName();
+
+            String headline = (dryRun ? "Dry run: " : "") + (copy ? "Copying" : "Moving") + " the artifacts of " +
+                    buildName + " #" + build.getNumber() + " to " + targetRepository;
+            logger.println(headline);
+            summary.append(headline).append('\n');
+
+            String deploymentUrl = server.getPreferredUrl();
+            StringBuilder url = new StringBuilder(deploymentUrl).append("/api/build/")
+                    .append(copy ? "copy" : "move").append('/').append(encodePath(buildName)).append('/')
+                    .append(build.getNumber()).append("?to=").append(URLEncoder.encode(targetRepository, "UTF-8"))
+                    .append("&arts=1&deps=").append(includeDependencies ? 1 : 0);
+            if (includeDependencies && StringUtils.isNotBlank(scopes)) {
+                url.append("&scopes=").append(URLEncoder.encode(StringUtils.join(StringUtils.split(scopes), ','),
+                        "UTF-8"));
+            }
+            if (dryRun) {
+                url.append("&dry=1");
+            }
+
+            ArtifactoryHttpClient client =
+                    server.createHttpClient(deploymentUrl, deployer.getUsername(), deployer.getPassword());
+            ServerStatistics statistics = server.getStatistics();
+            long start = statistics.requestStarted();
+            boolean success = false;
+            try {
+                HttpResponse response = client.getHttpClient().execute(new HttpPost(url.toString()));
+                String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity(), "UTF-8") : "";
+                appendMessages(body, logger, summary);
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK) {
+                    throw new IOException("Promotion failed: " + response.getStatusLine());
+                }
+                success = true;
+            } finally {
+                statistics.requestCompleted(Operation.PROMOTION, start, 0, success);
+                client.shutdown();
+            }
+            String done = dryRun ? "Dry run completed, nothing was changed" : "Promotion completed";
+            logger.println(done);
+            summary.append(done).append('\n');
+        }
+
+        /**
+         * Artifactory answers with a JSON document holding a list of messages, anything else is reported as is.
+         */
+        private void appendMessages(String body, PrintStream logger, StringBuilder summary) {
+            if (StringUtils.isBlank(body)) {
+                return;
+            }
+            try {
+                JsonNode messages = new ObjectMapper().readTree(body).get("messages");
+                if (messages != null) {
+                    for (JsonNode message : messages) {
+                        String line = message.path("level").getTextValue() + ": " +
+                                message.path("message").getTextValue();
+                        logger.println(line);
+                        summary.append(line).append('\n');
+                    }
+                    return;
+                }
+            } catch (IOException e) {
+                // not json
+            }
+            logger.println(body);
+            summary.append(body).append('\n');
+        }
+
+        private String encodePath(String pathElement) throws IOException {
+            return URLEncoder.encode(pathElement, "UTF-8").replace("+", "%20");
+        }
+    }
+}
@@ -16,7 +16,6 @@
 
 package org.jfrog.hudson.ivy;
 
-import com.google.common.collect.Maps;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -25,13 +24,10 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.BuildListener;
-import hudson.model.Cause;
-import hudson.model.CauseAction;
 import hudson.model.Hudson;
 import hudson.model.Result;
 import hudson.remoting.Which;
 import hudson.tasks.BuildWrapperDescriptor;
-import hudson.tasks.LogRotator;
 import hudson.util.FormValidation;
 import hudson.util.XStream2;
 import net.sf.json.JSONObject;
@@ -44,12 +40,14 @@ import org.jfrog.build.client.ClientProperties;
 import org.jfrog.build.config.ArtifactoryIvySettingsConfigurator;
 import org.jfrog.hudson.ArtifactoryBuilder;
 import org.jfrog.hudson.ArtifactoryServer;
-import org.jfrog.hudson.DeployerOverrider;
+import org.jfrog.hudson.BuildInfoAwareConfigurator;
 import org.jfrog.hudson.ServerDetails;
 import org.jfrog.hudson.action.ActionableHelper;
-import org.jfrog.hudson.util.CredentialResolver;
+import org.jfrog.hudson.util.BuildInfoPropertyModel;
+import org.jfrog.hudson.util.BuildPropertiesFile;
 import org.jfrog.hudson.util.Credentials;
 import org.jfrog.hudson.util.FormValidations;
+import org.jfrog.hudson.util.IncludeExcludeMatcher;
 import org.jfrog.hudson.util.IncludesExcludes;
 import org.jfrog.hudson.util.OverridingDeployerCredentialsConverter;
 import org.jfrog.hudson.util.PluginDependencyHelper;
@@ -60,14 +58,16 @@ import org.kohsuke.stapler.StaplerRequest;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 
 /**
  * @author Tomer Cohen
  */
-public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements DeployerOverrider {
+public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements BuildInfoAwareConfigurator {
 
     private ServerDetails details;
     private final Credentials overridingDeployerCredentials;
@@ -75,6 +75,7 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
     private final IncludesExcludes artifactDeploymentPatterns;
     private boolean deployBuildInfo;
     private boolean includeEnvVars;
+    private final IncludesExcludes envVarsPatterns;
     private boolean runChecks;
     private String violationRecipients;
     private boolean includePublishArtifacts;
@@ -91,7 +92,7 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
             boolean deployArtifacts, IncludesExcludes artifactDeploymentPatterns, boolean deployBuildInfo,
             boolean includeEnvVars, boolean runChecks, String violationRecipients, boolean includePublishArtifacts,
             String scopes, boolean disableLicenseAutoDiscovery, boolean notM2Compatible, String ivyPattern,
-            String artifactPattern, boolean discardOldBuilds) {
+            String artifactPattern, boolean discardOldBuilds, IncludesExcludes envVarsPatterns) {
         this.details = details;
         this.overridingDeployerCredentials = overridingDeployerCredentials;
         this.deployArtifacts = deployArtifacts;
@@ -107,6 +108,7 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
         this.ivyPattern = ivyPattern;
         this.artifactPattern = artifactPattern;
         this.discardOldBuilds = discardOldBuilds;
+        this.envVarsPatterns = envVarsPatterns;
         this.licenseAutoDiscovery = !disableLicenseAutoDiscovery;
     }
 
@@ -174,6 +176,10 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
         return disableLicenseAutoDiscovery;
     }
 
+    public boolean isLicenseAutoDiscovery() {
+        return licenseAutoDiscovery;
+    }
+
     public void setLicenseAutoDiscovery(boolean licenseAutoDiscovery) {
         this.licenseAutoDiscovery = licenseAutoDiscovery;
     }
@@ -202,6 +208,13 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
         return includeEnvVars;
     }
 
+    /**
+     * @return Patterns of the environment variable names captured in the build info, null to capture all of them
+     */
+    public IncludesExcludes getEnvVarsPatterns() {
+        return envVarsPatterns;
+    }
+
     public String getArtifactoryName() {
         return details != null ? details.artifactoryName : null;
     }
@@ -224,7 +237,7 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
     }
 
     @Override
-    public Environment setUp(final AbstractBuild build, Launcher launcher, BuildListener listener)
+    public Environment setUp(final AbstractBuild build, Launcher launcher, final BuildListener listener)
             throws IOException, InterruptedException {
         final ArtifactoryServer artifactoryServer = getArtifactoryServer();
         build.setResult(Result.SUCCESS);
@@ -234,35 +247,38 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
                 PluginDependencyHelper.getActualDependencyDirectory(build, localDependencyFile);
 
         return new AntIvyBuilderEnvironment() {
+            /**
+             * The environment captured for the build info, passed to the extractor in a file so the environment of
+             * the Ant process is not duplicated. Written on the first call, from the environment of the build.
+             */
+            private FilePath envVarsFile;
+
             @Override
             public void buildEnvVars(Map<String, String> env) {
-                Map<String, String> envVars = Maps.newHashMap();
-                for (Map.Entry<String, String> entry : env.entrySet()) {
-                    envVars.put(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + entry.getKey(), entry.getValue());
-                }
-                env.putAll(envVars);
-                env.put(ClientProperties.PROP_CONTEXT_URL, artifactoryServer.getUrl());
-                env.put(ClientProperties.PROP_PUBLISH_REPOKEY, getRepositoryKey());
-
-                Credentials preferredDeployer = CredentialResolver.getPreferredDeployer(ArtifactoryIvyConfigurator.this,
-                        artifactoryServer);
-                env.put(ClientProperties.PROP_PUBLISH_USERNAME, preferredDeployer.getUsername());
-                env.put(ClientProperties.PROP_PUBLISH_PASSWORD, preferredDeployer.getPassword());
-                env.put(BuildInfoProperties.PROP_AGENT_NAME, "Jenkins");
-                env.put(BuildInfoProperties.PROP_AGENT_VERSION, build.getHudsonVersion());
-                env.put(BuildInfoProperties.PROP_BUILD_NUMBER, build.getNumber() + "");
-                env.put(BuildInfoProperties.PROP_BUILD_NAME, build.getProject().getName());
-                String principal = "auto";
-                CauseAction action = ActionableHelper.getLatestAction(build, CauseAction.class);
-                if (action != null) {
-                    for (Cause cause : action.getCauses()) {
-                        if (cause instanceof Cause.UserCause) {
-                            principal = ((Cause.UserCause) cause).getUserName();
+                if (isIncludeEnvVars()) {
+                    if (envVarsFile == null) {
+                        try {
+                            envVarsFile = writeEnvVars(env, build);
+                        } catch (Exception e) {
+                            listener.getLogger().println("Failed to write the environment variables for the " +
+                                    "build info: " + e.getMessage());
+                            build.setResult(Result.FAILURE);
+                            throw new RuntimeException(e);
                         }
                     }
+                    env.put(BuildInfoConfigProperties.PROP_PROPS_FILE, envVarsFile.getRemote());
+                }
+                BuildInfoPropertyModel.forBuild(build, ArtifactoryIvyConfigurator.this, artifactoryServer, env)
+                        .putAll(env);
+
+                // ivy specific properties
+                env.put(BuildInfoProperties.PROP_BUILD_NAME, build.getProject().getName());
+                if (StringUtils.isNotBlank(getViolationRecipients())) {
+                    env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_VIOLATION_RECIPIENTS, getViolationRecipients());
+                }
+                if (StringUtils.isNotBlank(getScopes())) {
+                    env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_SCOPES, getScopes());
                 }
-                env.put(BuildInfoProperties.PROP_PRINCIPAL, principal);
-                env.put(BuildInfoConfigProperties.PROP_INCLUDE_ENV_VARS, String.valueOf(isIncludeEnvVars()));
                 env.put(ClientProperties.PROP_PUBLISH_BUILD_INFO, String.valueOf(isDeployBuildInfo()));
                 env.put(ClientProperties.PROP_PUBLISH_ARTIFACT, String.valueOf(isDeployArtifacts()));
                 env.put(ClientIvyProperties.PROP_M2_COMPATIBLE, String.valueOf(isM2Compatible()));
@@ -272,52 +288,15 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
                 if (StringUtils.isNotBlank(getArtifactPattern())) {
                     env.put(ClientIvyProperties.PROP_IVY_ARTIFACT_PATTERN, normalizeString(getArtifactPattern()));
                 }
+            }
 
-                IncludesExcludes deploymentPatterns = getArtifactDeploymentPatterns();
-                if (deploymentPatterns != null) {
-                    String includePatterns = deploymentPatterns.getIncludePatterns();
-                    if (StringUtils.isNotBlank(includePatterns)) {
-                        env.put(ClientProperties.PROP_PUBLISH_ARTIFACT_INCLUDE_PATTERNS, includePatterns);
-                    }
-
-                    String excludePatterns = deploymentPatterns.getExcludePatterns();
-                    if (StringUtils.isNotBlank(excludePatterns)) {
-                        env.put(ClientProperties.PROP_PUBLISH_ARTIFACT_EXCLUDE_PATTERNS, excludePatterns);
-                    }
-                }
-                String buildUrl = ActionableHelper.getBuildUrl(build);
-                if (StringUtils.isNotBlank(buildUrl)) {
-                    env.put(BuildInfoProperties.PROP_BUILD_URL, buildUrl);
-                }
-                Cause.UpstreamCause parent = ActionableHelper.getUpstreamCause(build);
-                if (parent != null) {
-                    env.put(BuildInfoProperties.PROP_PARENT_BUILD_NAME, parent.getUpstreamProject());
-                    env.put(BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, parent.getUpstreamBuild() + "");
-                }
-                env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_RUN_CHECKS, String.valueOf(isRunChecks()));
-                env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_AUTO_DISCOVER,
-                        String.valueOf(licenseAutoDiscovery));
-                env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_INCLUDE_PUBLISHED_ARTIFACTS,
-                        String.valueOf(isIncludePublishArtifacts()));
-                if (StringUtils.isNotBlank(getViolationRecipients())) {
-                    env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_VIOLATION_RECIPIENTS, getViolationRecipients());
-                }
-                if (StringUtils.isNotBlank(getScopes())) {
-                    env.put(BuildInfoProperties.PROP_LICENSE_CONTROL_SCOPES, getScopes());
-                }
-                if (isDiscardOldBuilds()) {
-                    LogRotator rotator = build.getProject().getLogRotator();
-                    if (rotator != null) {
-                        if (rotator.getNumToKeep() > -1) {
-                            env.put(BuildInfoProperties.PROP_BUILD_RETENTION_DAYS,
-                                    String.valueOf(rotator.getNumToKeep()));
-                        }
-                        if (rotator.getDaysToKeep() > -1) {
-                            env.put(BuildInfoProperties.PROP_BUILD_RETENTION_MINIMUM_DATE,
-                                    String.valueOf(rotator.getDaysToKeep()));
-                        }
-                    }
+            @Override
+            public boolean tearDown(AbstractBuild build, BuildListener listener)
+                    throws IOException, InterruptedException {
+                if (envVarsFile != null) {
+                    envVarsFile.delete();
                 }
+                return true;
             }
 
             private String normalizeString(String text) {
@@ -354,6 +333,32 @@ public class ArtifactoryIvyConfigurator extends AntIvyBuildWrapper implements De
         };
     }
 
+    /**
+     * Writes the environment variables and build variables of the build, filtered by the configured patterns, to a
+     * properties file read by the extractor.
+     */
+    private FilePath writeEnvVars(Map<String, String> env, AbstractBuild build)
+            throws IOException, InterruptedException {
+        Map<String, String> buildEnv = new HashMap<String, String>(env);
+        buildEnv.putAll(build.getBuildVariables());
+        IncludeExcludeMatcher matcher =
+                envVarsPatterns != null ? envVarsPatterns.getMatcher() : IncludeExcludeMatcher.EMPTY;
+        return BuildPropertiesFile.write(build, "-env", getEnvVarsProperties(buildEnv, matcher));
+    }
+
+    /**
+     * @return The variables not excluded by the patterns, as build info environment properties
+     */
+    static Properties getEnvVarsProperties(Map<String, String> env, IncludeExcludeMatcher matcher) {
+        Properties props = new Properties();
+        for (Map.Entry<String, String> entry : env.entrySet()) {
+            if (!matcher.isExcluded(entry.getKey())) {
+                props.put(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + entry.getKey(), entry.getValue());
+            }
+        }
+        return props;
+    }
+
     public ArtifactoryServer getArtifactoryServer() {
         List<ArtifactoryServer> servers = getDescriptor().getArtifactoryServers();
         for (ArtifactoryServer server : servers) {
@@ -16,6 +16,8 @@
 
 package org.jfrog.hudson.maven2;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import hudson.maven.MavenBuild;
 import hudson.maven.MavenModule;
 import hudson.maven.MavenModuleSetBuild;
@@ -27,19 +29,28 @@ import hudson.model.Hudson;
 import hudson.model.Result;
 import hudson.util.VersionNumber;
 import org.apache.commons.lang.StringUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
 import org.jfrog.build.api.BuildInfoProperties;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
+import org.jfrog.build.client.ArtifactoryHttpClient;
 import org.jfrog.build.client.DeployDetails;
-import org.jfrog.build.client.IncludeExcludePatterns;
-import org.jfrog.build.client.PatternMatcher;
 import org.jfrog.hudson.ArtifactoryRedeployPublisher;
 import org.jfrog.hudson.ArtifactoryServer;
 import org.jfrog.hudson.action.ActionableHelper;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.ServerStatistics;
+import org.jfrog.hudson.util.CredentialResolver;
+import org.jfrog.hudson.util.Credentials;
+import org.jfrog.hudson.util.IncludeExcludeMatcher;
 import org.jfrog.hudson.util.IncludesExcludes;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.Map;
 
 /**
@@ -51,17 +62,42 @@ public class ArtifactsDeployer {
     private static final String HIGHEST_VERSION_BEFORE_ARCHIVE_FIX = "1.404";
 
     private final ArtifactoryServer artifactoryServer;
+    /**
+     * The URL of the server the client deploys to
+     */
+    private final String deploymentUrl;
     private final String targetReleasesRepository;
     private final String targetSnapshotsRepository;
     private final ArtifactoryBuildInfoClient client;
     private final MavenModuleSetBuild mavenModuleSetBuild;
     private final BuildListener listener;
-    private final IncludeExcludePatterns patterns;
+    private final IncludeExcludeMatcher patterns;
     private final boolean isArchiveJenkinsVersion;
+    private final ServerStatistics statistics;
+    private final ArtifactoryRedeployPublisher artifactoryPublisher;
+    private final boolean deferBuildProperties;
+    /**
+     * Release version folders ("repository/group/artifact/version") deployed without the build properties, to the
+     * timestamp of the module build that deployed them
+     */
+    private final Map<String, String> deferredFolders = Maps.newLinkedHashMap();
+    /**
+     * Whether the release version folders deployed to were created by this build. Only those are tagged as a whole,
+     * the artifacts deployed to existing folders carry their properties in the deployment request.
+     */
+    private final Map<String, Boolean> newFolders = Maps.newHashMap();
+    /**
+     * Client of the storage REST API, created for the first deferred release folder
+     */
+    private ArtifactoryHttpClient storageClient;
 
+    /**
+     * @param deploymentUrl The URL of the server the client deploys to, one of the URLs of the server of the publisher
+     */
     public ArtifactsDeployer(ArtifactoryRedeployPublisher artifactoryPublisher, ArtifactoryBuildInfoClient client,
-            MavenModuleSetBuild mavenModuleSetBuild, BuildListener listener) {
+            String deploymentUrl, MavenModuleSetBuild mavenModuleSetBuild, BuildListener listener) {
         this.client = client;
+        this.deploymentUrl = deploymentUrl;
         this.mavenModuleSetBuild = mavenModuleSetBuild;
         this.listener = listener;
         this.artifactoryServer = artifactoryPublisher.getArtifactoryServer();
@@ -69,18 +105,47 @@ public class ArtifactsDeployer {
         this.targetSnapshotsRepository = artifactoryPublisher.getSnapshotsRepositoryKey();
         IncludesExcludes patterns = artifactoryPublisher.getArtifactDeploymentPatterns();
         if (patterns != null) {
-            this.patterns = new IncludeExcludePatterns(patterns.getIncludePatterns(), patterns.getExcludePatterns());
+            this.patterns = patterns.getMatcher();
         } else {
-            this.patterns = IncludeExcludePatterns.EMPTY;
+            this.patterns = IncludeExcludeMatcher.EMPTY;
         }
         this.isArchiveJenkinsVersion = Hudson.getVersion().isNewerThan(new VersionNumber(
                 HIGHEST_VERSION_BEFORE_ARCHIVE_FIX));
+        this.statistics = artifactoryServer.getStatistics();
+        this.artifactoryPublisher = artifactoryPublisher;
+        this.deferBuildProperties = artifactoryPublisher.isDeferBuildProperties();
     }
 
     public void deploy() throws IOException, InterruptedException {
-        listener.getLogger().println("Deploying artifacts to " + artifactoryServer.getUrl());
+        listener.getLogger().println("Deploying artifacts to " + deploymentUrl);
         Map<MavenModule, MavenBuild> mavenBuildMap = mavenModuleSetBuild.getModuleLastBuilds();
+        Map<String, String> commonProperties = getCommonProperties();
+
+        boolean deployed = false;
+        try {
+            deployModules(mavenBuildMap, commonProperties);
+            deployed = true;
+        } finally {
+            // the folders deployed so far get their properties even if a later deployment failed
+            try {
+                setDeferredProperties(commonProperties);
+            } catch (IOException e) {
+                if (deployed) {
+                    throw e;
+                }
+                // don't hide the deployment failure
+                listener.getLogger().println("Failed to set the build properties of the deployed release folders: " +
+                        e.getMessage());
+            } finally {
+                if (storageClient != null) {
+                    storageClient.shutdown();
+                }
+            }
+        }
+    }
 
+    private void deployModules(Map<MavenModule, MavenBuild> mavenBuildMap, Map<String, String> commonProperties)
+            throws IOException, InterruptedException {
         for (Map.Entry<MavenModule, MavenBuild> mavenBuildEntry : mavenBuildMap.entrySet()) {
             MavenBuild mavenBuild = mavenBuildEntry.getValue();
             Result result = mavenBuild.getResult();
@@ -95,24 +160,54 @@ public class ArtifactsDeployer {
             MavenArtifact mavenArtifact = mar.mainArtifact;
 
             // deploy main artifact
-            deployArtifact(mavenBuild, mavenArtifact);
+            deployArtifact(mavenBuild, mavenArtifact, commonProperties);
             if (!mar.isPOM() && mar.pomArtifact != null && mar.pomArtifact != mar.mainArtifact) {
                 // deploy the pom if the main artifact is not the pom
-                deployArtifact(mavenBuild, mar.pomArtifact);
+                deployArtifact(mavenBuild, mar.pomArtifact, commonProperties);
             }
 
             // deploy attached artifacts
             for (MavenArtifact attachedArtifact : mar.attachedArtifacts) {
-                deployArtifact(mavenBuild, attachedArtifact);
+                deployArtifact(mavenBuild, attachedArtifact, commonProperties);
             }
         }
     }
 
-    private void deployArtifact(MavenBuild mavenBuild, MavenArtifact mavenArtifact)
-            throws IOException, InterruptedException {
+    /**
+     * Collects the properties attached to every deployed artifact of the build. Resolving the build environment is
+     * expensive (it runs all the environment contributors), so it is done once per build and not per artifact.
+     */
+    private Map<String, String> getCommonProperties() throws IOException, InterruptedException {
+        Cause.UpstreamCause parent = ActionableHelper.getUpstreamCause(mavenModuleSetBuild);
+        return createCommonProperties(mavenModuleSetBuild.getParent().getDisplayName(),
+                mavenModuleSetBuild.getNumber(), parent != null ? parent.getUpstreamProject() : null,
+                parent != null ? parent.getUpstreamBuild() : 0,
+                mavenModuleSetBuild.getEnvironment(listener).get("SVN_REVISION"));
+    }
+
+    /**
+     * @param parentName Name of the upstream project, null if the build wasn't triggered by one
+     * @param revision   The VCS revision, left out if blank
+     * @return The build properties shared by all the artifacts, immutable
+     */
+    static Map<String, String> createCommonProperties(String buildName, int buildNumber, String parentName,
+            int parentNumber, String revision) {
+        ImmutableMap.Builder<String, String> properties = ImmutableMap.builder();
+        properties.put("build.name", buildName).put("build.number", buildNumber + "");
+        if (parentName != null) {
+            properties.put("build.parentName", parentName).put("build.parentNumber", parentNumber + "");
+        }
+        if (StringUtils.isNotBlank(revision)) {
+            properties.put(BuildInfoProperties.PROP_VCS_REVISION, revision);
+        }
+        return properties.build();
+    }
+
+    private void deployArtifact(MavenBuild mavenBuild, MavenArtifact mavenArtifact,
+            Map<String, String> commonProperties) throws IOException, InterruptedException {
         String artifactPath = buildArtifactPath(mavenArtifact);
 
-        if (PatternMatcher.pathConflicts(artifactPath, patterns)) {
+        if (patterns.isExcluded(artifactPath)) {
             listener.getLogger().println("Skipping the deployment of '" + artifactPath +
                     "' due to the defined include-exclude patterns.");
             return;
@@ -120,33 +215,143 @@ public class ArtifactsDeployer {
 
         File artifactFile = getArtifactFile(mavenBuild, mavenArtifact);
 
+        String targetRepository = getTargetRepository(mavenArtifact.version);
+        String timestamp = mavenBuild.getTimestamp().getTime().getTime() + "";
         DeployDetails.Builder builder = new DeployDetails.Builder()
                 .file(artifactFile)
                 .artifactPath(artifactPath)
-                .targetRepository(getTargetRepository(mavenArtifact.version))
-                .md5(mavenArtifact.md5sum)
-                .addProperty("build.name", mavenModuleSetBuild.getParent().getDisplayName())
-                .addProperty("build.number", mavenModuleSetBuild.getNumber() + "")
-                .addProperty("build.timestamp", mavenBuild.getTimestamp().getTime().getTime() + "");
+                .targetRepository(targetRepository)
+                .md5(mavenArtifact.md5sum);
+        // a release version folder created by this build only holds its artifacts, tag it as a whole once deployed
+        String folder = targetRepository + "/" + StringUtils.substringBeforeLast(artifactPath, "/");
+        boolean deferProperties = deferBuildProperties && !mavenArtifact.version.endsWith("SNAPSHOT") &&
+                isNewFolder(folder);
+        if (!deferProperties) {
+            builder.addProperties(commonProperties).addProperty("build.timestamp", timestamp);
+        }
+        DeployDetails deployDetails = builder.build();
+        logDeploymentPath(deployDetails, artifactPath);
+        long start = statistics.requestStarted();
+        boolean success = false;
+        try {
+            client.deployArtifact(deployDetails);
+            success = true;
+        } finally {
+            statistics.requestCompleted(Operation.DEPLOY, start, artifactFile.length(), success);
+        }
+        if (deferProperties) {
+            deferredFolders.put(folder, timestamp);
+        }
+    }
 
+    /**
+     * @return True if the folder did not exist before this build deployed to it
+     */
+    private boolean isNewFolder(String folder) throws IOException {
+        Boolean isNew = newFolders.get(folder);
+        if (isNew == null) {
+            String url = deploymentUrl + "/api/storage/" + encodePath(folder);
+            long start = statistics.requestStarted();
+            boolean success = false;
+            try {
+                HttpResponse response = getStorageClient().getHttpClient().execute(new HttpGet(url));
+                if (response.getEntity() != null) {
+                    response.getEntity().consumeContent();
+                }
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_OK && status != HttpStatus.SC_NOT_FOUND) {
+                    throw new IOException("Failed to check whether " + folder + " exists: " +
+                            response.getStatusLine());
+                }
+                isNew = status == HttpStatus.SC_NOT_FOUND;
+                success = true;
+            } finally {
+                statistics.requestCompleted(Operation.PROPERTIES, start, 0, success);
+            }
+            newFolders.put(folder, isNew);
+        }
+        return isNew;
+    }
 
-        Cause.UpstreamCause parent = ActionableHelper.getUpstreamCause(mavenModuleSetBuild);
-        if (parent != null) {
-            builder.addProperty("build.parentName", parent.getUpstreamProject())
-                    .addProperty("build.parentNumber", parent.getUpstreamBuild() + "");
+    private ArtifactoryHttpClient getStorageClient() {
+        if (storageClient == null) {
+            Credentials deployer = CredentialResolver.getPreferredDeployer(artifactoryPublisher, artifactoryServer);
+            storageClient =
+                    artifactoryServer.createHttpClient(deploymentUrl, deployer.getUsername(), deployer.getPassword());
         }
-        String revision = mavenModuleSetBuild.getEnvironment(listener).get("SVN_REVISION");
-        if (StringUtils.isNotBlank(revision)) {
-            builder.addProperty(BuildInfoProperties.PROP_VCS_REVISION, revision);
+        return storageClient;
+    }
+
+    /**
+     * Sets the build properties on the deferred release folders, one recursive request per folder, on the server the
+     * artifacts were deployed to.
+     */
+    private void setDeferredProperties(Map<String, String> commonProperties) throws IOException {
+        for (Map.Entry<String, String> folder : deferredFolders.entrySet()) {
+            Map<String, String> properties = Maps.newLinkedHashMap(commonProperties);
+            properties.put("build.timestamp", folder.getValue());
+            String url = deploymentUrl + "/api/storage/" + encodePath(folder.getKey()) + "?properties=" +
+                    URLEncoder.encode(toPropertiesParam(properties), "UTF-8") + "&recursive=1";
+            listener.getLogger().println("Setting the build properties of: " + folder.getKey());
+            long start = statistics.requestStarted();
+            boolean success = false;
+            try {
+                HttpResponse response = getStorageClient().getHttpClient().execute(new HttpPut(url));
+                if (response.getEntity() != null) {
+                    response.getEntity().consumeContent();
+                }
+                int status = response.getStatusLine().getStatusCode();
+                if (status != HttpStatus.SC_NO_CONTENT && status != HttpStatus.SC_OK) {
+                    throw new IOException("Failed to set the build properties of " + folder.getKey() + ": " +
+                            response.getStatusLine());
+                }
+                success = true;
+            } finally {
+                statistics.requestCompleted(Operation.PROPERTIES, start, 0, success);
+            }
         }
-        DeployDetails deployDetails = builder.build();
-        logDeploymentPath(deployDetails, artifactPath);
-        client.deployArtifact(deployDetails);
+    }
+
+    /**
+     * @return The properties in the "key=value|key=value" form of the properties REST parameter, with the separators
+     *         escaped
+     */
+    static String toPropertiesParam(Map<String, String> properties) {
+        StringBuilder param = new StringBuilder();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            if (param.length() > 0) {
+                param.append('|');
+            }
+            param.append(escapeProperty(property.getKey())).append('=').append(escapeProperty(property.getValue()));
+        }
+        return param.toString();
+    }
+
+    static String escapeProperty(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ("\\|,;=".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    static String encodePath(String path) throws IOException {
+        StringBuilder encoded = new StringBuilder(path.length());
+        for (String element : StringUtils.split(path, '/')) {
+            if (encoded.length() > 0) {
+                encoded.append('/');
+            }
+            encoded.append(URLEncoder.encode(element, "UTF-8").replace("+", "%20"));
+        }
+        return encoded.toString();
     }
 
     private void logDeploymentPath(DeployDetails deployDetails, String artifactPath) {
-        String deploymentPath =
-                artifactoryServer.getUrl() + "/" + deployDetails.getTargetRepository() + "/" + artifactPath;
+        String deploymentPath = deploymentUrl + "/" + deployDetails.getTargetRepository() + "/" + artifactPath;
         listener.getLogger().println("Deploying artifact: " + deploymentPath);
     }
 
@@ -37,24 +37,33 @@ import org.jfrog.build.api.BuildAgent;
 import org.jfrog.build.api.BuildInfoProperties;
 import org.jfrog.build.api.BuildRetention;
 import org.jfrog.build.api.BuildType;
+import org.jfrog.build.api.Dependency;
 import org.jfrog.build.api.LicenseControl;
+import org.jfrog.build.api.Module;
 import org.jfrog.build.api.builder.ArtifactBuilder;
 import org.jfrog.build.api.builder.BuildInfoBuilder;
 import org.jfrog.build.api.builder.DependencyBuilder;
 import org.jfrog.build.api.builder.ModuleBuilder;
 import org.jfrog.build.client.ArtifactoryBuildInfoClient;
+import org.jfrog.hudson.ArtifactoryEndpoint;
 import org.jfrog.hudson.ArtifactoryRedeployPublisher;
 import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.BuildInfoDiffAction;
+import org.jfrog.hudson.BuildInfoResultAction;
 import org.jfrog.hudson.MavenDependenciesRecord;
 import org.jfrog.hudson.MavenDependency;
+import org.jfrog.hudson.MavenDependencyGraph;
 import org.jfrog.hudson.action.ActionableHelper;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.ServerStatistics;
 import org.jfrog.hudson.util.BuildRetentionFactory;
 
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Set;
+import java.util.Properties;
 
 /**
  * Builds and deploys the build info.
@@ -62,6 +71,23 @@ import java.util.Set;
  * @author Yossi Shaul
  */
 public class BuildInfoDeployer {
+    /**
+     * Dependency property holding the id of the dependency that pulled in a transitive dependency
+     */
+    private static final String REQUIRED_BY_PROPERTY = "requiredBy";
+    /**
+     * Module property holding the number of the build a module skipped by an incremental build was taken from
+     */
+    private static final String CARRIED_OVER_PROPERTY = "carriedOverFromBuild";
+    /**
+     * How far back to look for a saved build info to compare with
+     */
+    private static final int MAX_PREVIOUS_BUILDS_TO_COMPARE = 10;
+    /**
+     * How far back to look for the last build of a module skipped by an incremental build
+     */
+    private static final int MAX_PREVIOUS_BUILDS_TO_CARRY_OVER = 10;
+
     private final ArtifactoryRedeployPublisher publisher;
     private final ArtifactoryBuildInfoClient client;
     private final MavenModuleSetBuild build;
@@ -77,8 +103,62 @@ public class BuildInfoDeployer {
 
     public void deploy() throws IOException, InterruptedException {
         Build buildInfo = gatherBuildInfo(build);
+        addDiffAction(buildInfo);
+        IOException spoolFailure = null;
+        try {
+            // keep a copy for the next build to compare against
+            BuildInfoSpool.write(build, buildInfo);
+        } catch (IOException e) {
+            listener.getLogger().println("Failed to save a copy of the build info: " + e.getMessage());
+            spoolFailure = e;
+        }
         listener.getLogger().println("Deploying build info ...");
-        client.sendBuildInfo(buildInfo);
+        ServerStatistics statistics = publisher.getArtifactoryServer().getStatistics();
+        long start = statistics.requestStarted();
+        boolean success = false;
+        try {
+            client.sendBuildInfo(buildInfo);
+            success = true;
+        } catch (IOException e) {
+            if (!ArtifactoryEndpoint.isConnectionError(e)) {
+                throw e;
+            }
+            if (spoolFailure != null) {
+                // nothing to deliver later, fail with the connection error rather than the missing spool file
+                IOException failure = new IOException("Failed to deploy build info (" + e.getMessage() +
+                        ") and it could not be saved for a later deployment (" + spoolFailure.getMessage() + ")");
+                failure.initCause(e);
+                throw failure;
+            }
+            // Artifactory is unreachable (e.g., restarting), don't fail the build and deliver it later instead
+            BuildInfoOutbox.get().enqueue(build);
+            listener.getLogger().println("Failed to deploy build info (" + e.getMessage() +
+                    "), it was saved and will be deployed once Artifactory is reachable");
+        } finally {
+            statistics.requestCompleted(Operation.BUILD_INFO, start, 0, success);
+        }
+    }
+
+    /**
+     * Compares the build info with the one of the last build that has a saved copy. Artifactory only accepts complete
+     * build info documents, so the diff is informational and the full document is still sent.
+     */
+    private void addDiffAction(Build buildInfo) {
+        MavenModuleSetBuild previous = build.getPreviousBuild();
+        for (int i = 0; previous != null && i < MAX_PREVIOUS_BUILDS_TO_COMPARE; i++) {
+            if (BuildInfoSpool.getSpoolFile(previous).isFile()) {
+                try {
+                    Build previousBuildInfo = BuildInfoSpool.read(previous);
+                    build.getActions().add(
+                            new BuildInfoDiffAction(previous.getNumber(), previousBuildInfo, buildInfo));
+                } catch (IOException e) {
+                    listener.getLogger().println("Failed to read the build info of build #" + previous.getNumber() +
+                            ": " + e.getMessage());
+                }
+                return;
+            }
+            previous = previous.getPreviousBuild();
+        }
     }
 
     private Build gatherBuildInfo(MavenModuleSetBuild build) throws IOException, InterruptedException {
@@ -195,45 +275,156 @@ public class BuildInfoDeployer {
 
     private void gatherModuleAndDependencyInfo(BuildInfoBuilder infoBuilder, MavenModuleSetBuild mavenModulesBuild) {
         Map<MavenModule, MavenBuild> mavenBuildMap = mavenModulesBuild.getModuleLastBuilds();
+        // modules of the same reactor mostly depend on the same libraries, share one dependency object per unique
+        // dependency across all the modules
+        Map<String, Dependency> reactorDependencies = Maps.newHashMap();
+        // spooled build info of previous builds by build number, read once for all the skipped modules
+        Map<Integer, Build> previousBuildInfos = Maps.newHashMap();
         for (Map.Entry<MavenModule, MavenBuild> moduleBuild : mavenBuildMap.entrySet()) {
-            MavenModule mavenModule = moduleBuild.getKey();
             MavenBuild mavenBuild = moduleBuild.getValue();
             Result result = mavenBuild.getResult();
             if (Result.NOT_BUILT.equals(result)) {
                 // HAP-52 - the module build might be skipped if using incremental build
+                if (publisher.isIncrementalBuildInfo()) {
+                    addCarriedOverModule(infoBuilder, moduleBuild.getKey(), mavenBuild, previousBuildInfos);
+                }
                 continue;
             }
-            MavenArtifactRecord mar = ActionableHelper.getLatestMavenArtifactRecord(mavenBuild);
-            String moduleId = mavenModule.getName() + ":" + mavenModule.getVersion();
-            ModuleBuilder moduleBuilder = new ModuleBuilder().id(moduleId);
+            infoBuilder.addModule(toModule(moduleBuild.getKey(), mavenBuild, reactorDependencies));
+        }
+    }
+
+    /**
+     * Adds the module as it was published by the last build it was actually built in. Its artifacts were deployed by
+     * that build, so only its build info entry is carried over, copied from the build info spooled by that build.
+     */
+    private void addCarriedOverModule(BuildInfoBuilder infoBuilder, MavenModule mavenModule, MavenBuild notBuilt,
+            Map<Integer, Build> previousBuildInfos) {
+        MavenBuild lastBuilt = notBuilt.getPreviousBuild();
+        for (int i = 1; lastBuilt != null && Result.NOT_BUILT.equals(lastBuilt.getResult()); i++) {
+            lastBuilt = i < MAX_PREVIOUS_BUILDS_TO_CARRY_OVER ? lastBuilt.getPreviousBuild() : null;
+        }
+        Module module = lastBuilt != null ? getPublishedModule(mavenModule, lastBuilt, previousBuildInfos) : null;
+        if (module == null) {
+            listener.getLogger().println("No published build of skipped module " + mavenModule.getName() +
+                    " found in the last " + MAX_PREVIOUS_BUILDS_TO_CARRY_OVER +
+                    " builds, it will not be part of the build info");
+            return;
+        }
+        infoBuilder.addModule(carryOver(module, lastBuilt.getModuleSetBuild().getNumber()));
+    }
 
-            // add artifacts
-            moduleBuilder.addArtifact(toArtifact(mar.mainArtifact));
-            if (!mar.isPOM() && mar.pomArtifact != null && mar.pomArtifact != mar.mainArtifact) {
-                moduleBuilder.addArtifact(toArtifact(mar.pomArtifact));
+    /**
+     * @return The module entry of the build info published by the build the module build is part of, null if the
+     *         build didn't publish it
+     */
+    private Module getPublishedModule(MavenModule mavenModule, MavenBuild moduleBuild,
+            Map<Integer, Build> previousBuildInfos) {
+        MavenModuleSetBuild moduleSetBuild = moduleBuild.getModuleSetBuild();
+        Result threshold = publisher.isEvenIfUnstable() ? Result.UNSTABLE : Result.SUCCESS;
+        if (moduleSetBuild == null || !isPublished(moduleBuild.getResult(), threshold) ||
+                !isPublished(moduleSetBuild.getResult(), threshold) ||
+                ActionableHelper.getLatestAction(moduleSetBuild, BuildInfoResultAction.class) == null) {
+            return null;
+        }
+        Integer buildNumber = moduleSetBuild.getNumber();
+        if (!previousBuildInfos.containsKey(buildNumber)) {
+            Build buildInfo = null;
+            try {
+                buildInfo = BuildInfoSpool.read(moduleSetBuild);
+            } catch (IOException e) {
+                listener.getLogger().println("Failed to read the build info of build #" + buildNumber + ": " +
+                        e.getMessage());
             }
-            for (MavenArtifact attachedArtifact : mar.attachedArtifacts) {
-                moduleBuilder.addArtifact(toArtifact(attachedArtifact));
+            previousBuildInfos.put(buildNumber, buildInfo);
+        }
+        Build buildInfo = previousBuildInfos.get(buildNumber);
+        return buildInfo != null ? findModule(buildInfo, mavenModule.getName()) : null;
+    }
+
+    private boolean isPublished(Result result, Result threshold) {
+        return result != null && !result.isWorseThan(threshold);
+    }
+
+    /**
+     * @param moduleName The module name, groupId:artifactId
+     * @return The module of the build info with the given name, whatever its version, null if there is none
+     */
+    static Module findModule(Build buildInfo, String moduleName) {
+        if (buildInfo.getModules() != null) {
+            for (Module module : buildInfo.getModules()) {
+                // the id is the module name followed by the version it had in that build
+                String id = module.getId();
+                int versionStart = id != null ? id.lastIndexOf(':') : -1;
+                if (versionStart > 0 && id.substring(0, versionStart).equals(moduleName)) {
+                    return module;
+                }
             }
+        }
+        return null;
+    }
+
+    /**
+     * Marks the module as carried over from the given build, keeping its other properties.
+     */
+    static Module carryOver(Module module, int buildNumber) {
+        Properties properties = new Properties();
+        if (module.getProperties() != null) {
+            properties.putAll(module.getProperties());
+        }
+        properties.setProperty(CARRIED_OVER_PROPERTY, String.valueOf(buildNumber));
+        module.setProperties(properties);
+        return module;
+    }
 
-            addDependencies(moduleBuilder, mavenBuild);
+    private Module toModule(MavenModule mavenModule, MavenBuild mavenBuild,
+            Map<String, Dependency> reactorDependencies) {
+        MavenArtifactRecord mar = ActionableHelper.getLatestMavenArtifactRecord(mavenBuild);
+        String moduleId = mavenModule.getName() + ":" + mavenModule.getVersion();
+        ModuleBuilder moduleBuilder = new ModuleBuilder().id(moduleId);
 
-            infoBuilder.addModule(moduleBuilder.build());
+        // add artifacts
+        moduleBuilder.addArtifact(toArtifact(mar.mainArtifact));
+        if (!mar.isPOM() && mar.pomArtifact != null && mar.pomArtifact != mar.mainArtifact) {
+            moduleBuilder.addArtifact(toArtifact(mar.pomArtifact));
         }
+        for (MavenArtifact attachedArtifact : mar.attachedArtifacts) {
+            moduleBuilder.addArtifact(toArtifact(attachedArtifact));
+        }
+
+        addDependencies(moduleBuilder, mavenBuild, reactorDependencies);
+
+        return moduleBuilder.build();
     }
 
-    private void addDependencies(ModuleBuilder moduleBuilder, MavenBuild mavenBuild) {
+    private void addDependencies(ModuleBuilder moduleBuilder, MavenBuild mavenBuild,
+            Map<String, Dependency> reactorDependencies) {
         MavenDependenciesRecord dependenciesRecord =
                 ActionableHelper.getLatestAction(mavenBuild, MavenDependenciesRecord.class);
         if (dependenciesRecord != null) {
-            Set<MavenDependency> dependencies = dependenciesRecord.getDependencies();
-            for (MavenDependency dependency : dependencies) {
-                DependencyBuilder dependencyBuilder = new DependencyBuilder()
-                        .id(dependency.id)
-                        .scopes(Arrays.asList(dependency.scope))
-                        .type(dependency.type)
-                        .md5(getMd5(dependency.groupId, dependency.fileName, mavenBuild));
-                moduleBuilder.addDependency(dependencyBuilder.build());
+            MavenDependencyGraph graph = dependenciesRecord.getDependencyGraph();
+            Map<String, String> fingerprints = getFingerprints(mavenBuild);
+            for (MavenDependency dependency : graph.getDependencies()) {
+                String id = dependency.getId();
+                String md5 = fingerprints.get(dependency.getGroupId() + ":" + dependency.getFileName());
+                String requiredBy = graph.getParent(id);
+                String key = id + "|" + dependency.getScope() + "|" + md5 + "|" + requiredBy;
+                Dependency buildDependency = reactorDependencies.get(key);
+                if (buildDependency == null) {
+                    DependencyBuilder dependencyBuilder = new DependencyBuilder()
+                            .id(id)
+                            .scopes(Arrays.asList(dependency.getScope()))
+                            .type(dependency.getType())
+                            .md5(md5);
+                    buildDependency = dependencyBuilder.build();
+                    if (requiredBy != null) {
+                        Properties properties = new Properties();
+                        properties.setProperty(REQUIRED_BY_PROPERTY, requiredBy);
+                        buildDependency.setProperties(properties);
+                    }
+                    reactorDependencies.put(key, buildDependency);
+                }
+                moduleBuilder.addDependency(buildDependency);
             }
         }
     }
@@ -244,13 +435,16 @@ public class BuildInfoDeployer {
         return artifactBuilder.build();
     }
 
-    private String getMd5(String groupId, String fileName, MavenBuild mavenBuild) {
-        String md5 = null;
+    /**
+     * @return The fingerprints (groupId:fileName to md5) recorded for the module, looked up once per module rather than
+     *         once per dependency
+     */
+    private Map<String, String> getFingerprints(MavenBuild mavenBuild) {
         Fingerprinter.FingerprintAction fingerprint = ActionableHelper.getLatestAction(
                 mavenBuild, Fingerprinter.FingerprintAction.class);
         if (fingerprint != null) {
-            md5 = fingerprint.getRecords().get(groupId + ":" + fileName);
+            return fingerprint.getRecords();
         }
-        return md5;
+        return Collections.emptyMap();
     }
 }
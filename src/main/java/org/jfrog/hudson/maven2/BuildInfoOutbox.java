@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson.maven2;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.maven.MavenModuleSet;
+import hudson.maven.MavenModuleSetBuild;
+import hudson.model.Hudson;
+import hudson.model.PeriodicWork;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.client.ArtifactoryBuildInfoClient;
+import org.jfrog.hudson.ArtifactoryEndpoint;
+import org.jfrog.hudson.ArtifactoryRedeployPublisher;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.stats.Operation;
+import org.jfrog.hudson.stats.ServerStatistics;
+import org.jfrog.hudson.util.CredentialResolver;
+import org.jfrog.hudson.util.Credentials;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers build info documents that could not be deployed when the build ended because Artifactory was unreachable.
+ * The build info itself is spooled in the build directory (see {@link BuildInfoSpool}), the outbox only keeps the job
+ * name and build number of the pending builds, persisted in the Hudson root so they survive a restart.
+ * <p/>
+ * Delivery is rate limited: every run sends at most {@link #MAX_DELIVERIES_PER_RUN} documents and stops at the first
+ * connection failure, so once Artifactory is back the backlog drains gradually instead of all at once. Failed
+ * deliveries are retried with an exponential backoff, up to {@link #MAX_ATTEMPTS} times.
+ */
+@Extension
+public class BuildInfoOutbox extends PeriodicWork {
+    private static final Logger log = Logger.getLogger(BuildInfoOutbox.class.getName());
+
+    private static final long RECURRENCE_PERIOD = 30 * 1000L;
+    private static final int MAX_DELIVERIES_PER_RUN = 5;
+    private static final int MAX_ATTEMPTS = 20;
+    private static final long INITIAL_BACKOFF = 60 * 1000L;
+    private static final long MAX_BACKOFF = 60 * 60 * 1000L;
+
+    /**
+     * Pending deliveries, loaded lazily from the outbox file. Guarded by this.
+     */
+    private List<Entry> entries;
+
+    /**
+     * @return The outbox instance registered as an extension
+     */
+    public static BuildInfoOutbox get() {
+        return PeriodicWork.all().get(BuildInfoOutbox.class);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD;
+    }
+
+    /**
+     * Schedules the build info spooled for the build (see {@link BuildInfoSpool#write}) for delivery.
+     *
+     * @throws IOException If the build has no spooled build info
+     */
+    public void enqueue(MavenModuleSetBuild build) throws IOException {
+        if (!BuildInfoSpool.getSpoolFile(build).isFile()) {
+            throw new IOException("No build info was saved for " + build.getFullDisplayName());
+        }
+        synchronized (this) {
+            getEntries().add(new Entry(build.getParent().getFullName(), build.getNumber()));
+            save();
+        }
+    }
+
+    /**
+     * @return Number of build info documents waiting for delivery
+     */
+    public synchronized int getPendingCount() {
+        return getEntries().size();
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        List<Entry> due;
+        synchronized (this) {
+            due = getDueEntries(getEntries(), System.currentTimeMillis());
+        }
+        for (Entry entry : due) {
+            IOException failure = null;
+            try {
+                deliver(entry);
+            } catch (IOException e) {
+                log.warning("Failed to deploy the build info of " + entry + ": " + e.getMessage());
+                failure = e;
+            }
+            synchronized (this) {
+                if (failure == null || !entry.scheduleRetry(System.currentTimeMillis())) {
+                    if (failure != null) {
+                        log.warning("Giving up deploying the build info of " + entry + " after " + MAX_ATTEMPTS +
+                                " attempts, it is kept in the build directory");
+                    }
+                    getEntries().remove(entry);
+                }
+                save();
+            }
+            if (failure != null && ArtifactoryEndpoint.isConnectionError(failure)) {
+                // still down, no point in trying the rest now
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return The first entries whose next attempt is due, at most {@link #MAX_DELIVERIES_PER_RUN}
+     */
+    static List<Entry> getDueEntries(List<Entry> entries, long now) {
+        List<Entry> due = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (entry.nextAttempt <= now) {
+                due.add(entry);
+                if (due.size() == MAX_DELIVERIES_PER_RUN) {
+                    break;
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Deploys the spooled build info of the entry, entries which are no longer deliverable are silently dropped.
+     */
+    private void deliver(Entry entry) throws IOException {
+        MavenModuleSet project = Hudson.getInstance().getItemByFullName(entry.jobName, MavenModuleSet.class);
+        MavenModuleSetBuild build = project != null ? project.getBuildByNumber(entry.buildNumber) : null;
+        ArtifactoryRedeployPublisher publisher =
+                project != null ? project.getPublishersList().get(ArtifactoryRedeployPublisher.class) : null;
+        if (build == null || publisher == null || publisher.getArtifactoryServer() == null) {
+            log.info("Dropping the pending build info of " + entry + ", the build or its configuration is gone");
+            return;
+        }
+        Build buildInfo = BuildInfoSpool.read(build);
+        if (buildInfo == null) {
+            log.info("Dropping the pending build info of " + entry + ", the spooled file is missing");
+            return;
+        }
+
+        ArtifactoryServer server = publisher.getArtifactoryServer();
+        Credentials deployer = CredentialResolver.getPreferredDeployer(publisher, server);
+        ArtifactoryBuildInfoClient client =
+                server.createArtifactoryClient(deployer.getUsername(), deployer.getPassword());
+        ServerStatistics statistics = server.getStatistics();
+        long start = statistics.requestStarted();
+        boolean success = false;
+        try {
+            client.sendBuildInfo(buildInfo);
+            success = true;
+        } finally {
+            statistics.requestCompleted(Operation.BUILD_INFO, start, 0, success);
+            client.shutdown();
+        }
+        log.info("Deployed the pending build info of " + entry);
+    }
+
+    private List<Entry> getEntries() {
+        if (entries == null) {
+            entries = new ArrayList<Entry>();
+            XmlFile file = getOutboxFile();
+            if (file.exists()) {
+                try {
+                    Entry[] loaded = (Entry[]) file.read();
+                    for (Entry entry : loaded) {
+                        entries.add(entry);
+                    }
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to load the pending build info deliveries", e);
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void save() {
+        try {
+            getOutboxFile().write(entries.toArray(new Entry[entries.size()]));
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to save the pending build info deliveries", e);
+        }
+    }
+
+    private static XmlFile getOutboxFile() {
+        return new XmlFile(Hudson.XSTREAM, new File(Hudson.getInstance().getRootDir(), "artifactory-outbox.xml"));
+    }
+
+    static class Entry {
+        private final String jobName;
+        private final int buildNumber;
+        private int attempts;
+        private long nextAttempt;
+
+        Entry(String jobName, int buildNumber) {
+            this.jobName = jobName;
+            this.buildNumber = buildNumber;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        long getNextAttempt() {
+            return nextAttempt;
+        }
+
+        /**
+         * Schedules the next attempt after a failed one, doubling the delay from {@link #INITIAL_BACKOFF} up to
+         * {@link #MAX_BACKOFF}.
+         *
+         * @param now Time of the failed attempt
+         * @return False if the entry ran out of attempts
+         */
+        boolean scheduleRetry(long now) {
+            attempts++;
+            if (attempts >= MAX_ATTEMPTS) {
+                return false;
+            }
+            long backoff = INITIAL_BACKOFF << Math.min(attempts - 1, 16);
+            nextAttempt = now + Math.min(backoff, MAX_BACKOFF);
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return jobName + " #" + buildNumber;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson.maven2;
+
+import com.google.common.io.Closeables;
+import hudson.model.AbstractBuild;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.jfrog.build.api.Build;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Reads and writes the build info of a build as gzipped json in the build directory.
+ */
+public abstract class BuildInfoSpool {
+    private static final String SPOOL_FILE_NAME = "artifactory-build-info.json.gz";
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    static {
+        // the build info has a few derived getters without setters
+        mapper.configure(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    private BuildInfoSpool() {
+        // utility class
+    }
+
+    public static File getSpoolFile(AbstractBuild build) {
+        return new File(build.getRootDir(), SPOOL_FILE_NAME);
+    }
+
+    /**
+     * Writes the build info to a temp file which is then renamed, so a crash never leaves a partial file behind. The
+     * temp file is deleted if writing it fails.
+     */
+    public static void write(AbstractBuild build, Build buildInfo) throws IOException {
+        write(getSpoolFile(build), buildInfo);
+    }
+
+    static void write(File spoolFile, Build buildInfo) throws IOException {
+        File tempFile = new File(spoolFile.getPath() + ".tmp");
+        boolean written = false;
+        try {
+            OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            boolean closed = false;
+            try {
+                mapper.writeValue(out, buildInfo);
+                // closing writes the gzip trailer, a failure here means the file is incomplete
+                out.close();
+                closed = true;
+            } finally {
+                if (!closed) {
+                    Closeables.closeQuietly(out);
+                }
+            }
+            if (spoolFile.exists() && !spoolFile.delete()) {
+                throw new IOException("Failed to replace " + spoolFile);
+            }
+            if (!tempFile.renameTo(spoolFile)) {
+                throw new IOException("Failed to rename " + tempFile + " to " + spoolFile);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return The build info spooled for the build, null if there is none
+     */
+    public static Build read(AbstractBuild build) throws IOException {
+        return read(getSpoolFile(build));
+    }
+
+    static Build read(File spoolFile) throws IOException {
+        if (!spoolFile.isFile()) {
+            return null;
+        }
+        InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(spoolFile)));
+        try {
+            return mapper.readValue(in, Build.class);
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+}
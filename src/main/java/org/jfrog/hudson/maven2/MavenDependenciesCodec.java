@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson.maven2;
+
+import org.jfrog.hudson.MavenDependency;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact wire encoding of the dependencies recorded for a module, used to ship them from the maven process to the
+ * master. Every distinct string is written once to a string table and the dependencies refer to it by varint index,
+ * so the group ids, versions and scopes repeated across dependencies cost a byte or two each.
+ * <p/>
+ * Layout: format version, string table (count followed by UTF strings), dependencies (count followed by one index per
+ * field) and dependency parents (count followed by id and parent index pairs). Index 0 stands for null.
+ */
+class MavenDependenciesCodec {
+    private static final int FORMAT_VERSION = 1;
+
+    private MavenDependenciesCodec() {
+        // utility class
+    }
+
+    /**
+     * @param dependencies The dependencies to encode, may be modified concurrently
+     * @param parents      The dependency parents to encode, may be modified concurrently
+     * @return The encoded dependencies of a snapshot of the given collections
+     */
+    static byte[] encode(Collection<MavenDependency> dependencies, Map<String, String> parents) throws IOException {
+        // the recorder maps keep filling while the module build goes on, the sizes used for the arrays and written
+        // to the stream must be the ones of the entries actually encoded
+        List<MavenDependency> dependencySnapshot = new ArrayList<MavenDependency>(dependencies);
+        Map<String, String> parentSnapshot = new HashMap<String, String>(parents);
+        StringTable table = new StringTable();
+        int[] dependencyIndices = new int[dependencySnapshot.size() * 8];
+        int i = 0;
+        for (MavenDependency dependency : dependencySnapshot) {
+            dependencyIndices[i++] = table.indexOf(dependency.getGroupId());
+            dependencyIndices[i++] = table.indexOf(dependency.getArtifactId());
+            dependencyIndices[i++] = table.indexOf(dependency.getVersion());
+            dependencyIndices[i++] = table.indexOf(dependency.getBaseVersion());
+            dependencyIndices[i++] = table.indexOf(dependency.getType());
+            dependencyIndices[i++] = table.indexOf(dependency.getClassifier());
+            dependencyIndices[i++] = table.indexOf(dependency.getScope());
+            dependencyIndices[i++] = table.indexOf(dependency.getFileName());
+        }
+        int[] parentIndices = new int[parentSnapshot.size() * 2];
+        i = 0;
+        for (Map.Entry<String, String> entry : parentSnapshot.entrySet()) {
+            parentIndices[i++] = table.indexOf(entry.getKey());
+            parentIndices[i++] = table.indexOf(entry.getValue());
+        }
+
+        ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(dependencyIndices.length * 2 + table.strings.size() * 24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeVarInt(out, FORMAT_VERSION);
+        writeVarInt(out, table.strings.size());
+        for (String string : table.strings) {
+            out.writeUTF(string);
+        }
+        writeVarInt(out, dependencySnapshot.size());
+        for (int index : dependencyIndices) {
+            writeVarInt(out, index);
+        }
+        writeVarInt(out, parentSnapshot.size());
+        for (int index : parentIndices) {
+            writeVarInt(out, index);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param encoded   Bytes created by {@link #encode}
+     * @param parents   Map to fill with the dependency parents
+     * @return The decoded dependencies
+     */
+    static Set<MavenDependency> decode(byte[] encoded, Map<String, String> parents) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        int formatVersion = readVarInt(in);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported dependencies encoding version: " + formatVersion);
+        }
+        String[] strings = new String[readVarInt(in) + 1];
+        for (int i = 1; i < strings.length; i++) {
+            strings[i] = in.readUTF().intern();
+        }
+        int dependencyCount = readVarInt(in);
+        Set<MavenDependency> dependencies = new HashSet<MavenDependency>(dependencyCount * 4 / 3 + 1);
+        for (int i = 0; i < dependencyCount; i++) {
+            String groupId = strings[readVarInt(in)];
+            String artifactId = strings[readVarInt(in)];
+            String version = strings[readVarInt(in)];
+            String baseVersion = strings[readVarInt(in)];
+            String type = strings[readVarInt(in)];
+            String classifier = strings[readVarInt(in)];
+            String scope = strings[readVarInt(in)];
+            String fileName = strings[readVarInt(in)];
+            dependencies.add(
+                    new MavenDependency(groupId, artifactId, version, baseVersion, type, classifier, scope, fileName));
+        }
+        int parentCount = readVarInt(in);
+        for (int i = 0; i < parentCount; i++) {
+            String id = strings[readVarInt(in)];
+            parents.put(id, strings[readVarInt(in)]);
+        }
+        return dependencies;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in encoded dependencies");
+    }
+
+    private static class StringTable {
+        private final Map<String, Integer> indices = new HashMap<String, Integer>();
+        private final List<String> strings = new ArrayList<String>();
+
+        int indexOf(String string) {
+            if (string == null) {
+                return 0;
+            }
+            Integer index = indices.get(string);
+            if (index == null) {
+                strings.add(string);
+                index = strings.size();
+                indices.put(string, index);
+            }
+            return index;
+        }
+    }
+}
@@ -29,13 +29,22 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.project.MavenProject;
 import org.jfrog.hudson.MavenDependenciesRecord;
 import org.jfrog.hudson.MavenDependency;
+import org.jfrog.hudson.MavenDependencyGraph;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Records dependencies used during the build.
+ * <p/>
+ * Each module gets its own recorder. The state is created in {@link #preBuild} and then filled by the mojo callbacks,
+ * which a parallel Maven 3 reactor may run on other threads than the one that created it, so the state is kept in
+ * concurrent maps published through volatile fields.
  *
  * @author Yossi Shaul
  */
@@ -44,12 +53,18 @@ public class MavenDependenciesRecorder extends MavenReporter {
     /**
      * All dependencies this module used, including transitive ones.
      */
-    private transient Set<MavenDependency> dependencies;
+    private transient volatile ConcurrentMap<MavenDependency, Boolean> dependencies;
+
+    /**
+     * Dependency id to the id of the dependency that pulled it in, direct dependencies are not included.
+     */
+    private transient volatile ConcurrentMap<String, String> dependencyParents;
 
     @Override
     public boolean preBuild(MavenBuildProxy build, MavenProject pom, BuildListener listener) {
         listener.getLogger().println("[HUDSON] Collecting dependencies info");
-        dependencies = new HashSet<MavenDependency>();
+        dependencies = new ConcurrentHashMap<MavenDependency, Boolean>();
+        dependencyParents = new ConcurrentHashMap<String, String>();
         return true;
     }
 
@@ -72,14 +87,17 @@ public class MavenDependenciesRecorder extends MavenReporter {
     public boolean postBuild(MavenBuildProxy build, MavenProject pom, BuildListener listener)
             throws InterruptedException, IOException {
         build.executeAsync(new BuildCallable<Void, IOException>() {
-            // record is transient, so needs to make a copy first
-            private final Set<MavenDependency> d = dependencies;
+            // record is transient, so needs to make a copy first. sent in the compact encoding rather than as
+            // serialized objects
+            private final byte[] encoded = MavenDependenciesCodec.encode(dependencies.keySet(), dependencyParents);
 
             public Void call(MavenBuild build) throws IOException, InterruptedException {
+                Map<String, String> parents = new HashMap<String, String>();
+                Set<MavenDependency> d = MavenDependenciesCodec.decode(encoded, parents);
                 // add the action
                 //TODO: [by yl] These actions are persisted into the build.xml of each build run - we need another
                 //context to store these actions
-                build.getActions().add(new MavenDependenciesRecord(build, d));
+                build.getActions().add(new MavenDependenciesRecord(build, new MavenDependencyGraph(d, parents)));
                 return null;
             }
         });
@@ -89,20 +107,28 @@ public class MavenDependenciesRecorder extends MavenReporter {
     private void recordMavenDependencies(Set<Artifact> artifacts) {
         if (artifacts != null) {
             for (Artifact dependency : artifacts) {
-                MavenDependency mavenDependency = new MavenDependency();
-                mavenDependency.id = dependency.getId();
-                mavenDependency.groupId = dependency.getGroupId();
-                mavenDependency.artifactId = dependency.getArtifactId();
-                mavenDependency.version = dependency.getVersion();
-                mavenDependency.classifier = dependency.getClassifier();
-                mavenDependency.scope = dependency.getScope();
-                mavenDependency.fileName = dependency.getFile().getName();
-                mavenDependency.type = dependency.getType();
-                dependencies.add(mavenDependency);
+                MavenDependency mavenDependency = new MavenDependency(dependency.getGroupId(),
+                        dependency.getArtifactId(), dependency.getVersion(), dependency.getBaseVersion(),
+                        dependency.getType(), dependency.getClassifier(), dependency.getScope(),
+                        dependency.getFile().getName());
+                dependencies.putIfAbsent(mavenDependency, Boolean.TRUE);
+                recordParent(dependency);
             }
         }
     }
 
+    /**
+     * The dependency trail starts with the project itself and ends with the dependency, the entry before the last one
+     * is the dependency that pulled it in.
+     */
+    @SuppressWarnings({"unchecked"})
+    private void recordParent(Artifact dependency) {
+        List<String> trail = dependency.getDependencyTrail();
+        if (trail != null && trail.size() > 2) {
+            dependencyParents.put(dependency.getId(), trail.get(trail.size() - 2));
+        }
+    }
+
     @Extension
     public static final class DescriptorImpl extends MavenReporterDescriptor {
         @Override
@@ -19,7 +19,6 @@ package org.jfrog.hudson.maven3;
 import com.google.common.base.Predicate;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
-import com.google.common.io.Closeables;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -28,13 +27,11 @@ import hudson.model.AbstractProject;
 import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Cause;
-import hudson.model.CauseAction;
 import hudson.model.FreeStyleProject;
 import hudson.model.Hudson;
 import hudson.model.Result;
 import hudson.tasks.BuildWrapper;
 import hudson.tasks.BuildWrapperDescriptor;
-import hudson.tasks.LogRotator;
 import hudson.util.FormValidation;
 import hudson.util.XStream2;
 import net.sf.json.JSONObject;
@@ -46,11 +43,12 @@ import org.jfrog.build.client.ClientProperties;
 import org.jfrog.build.extractor.maven.BuildInfoRecorder;
 import org.jfrog.hudson.ArtifactoryBuilder;
 import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.BuildInfoAwareConfigurator;
 import org.jfrog.hudson.BuildInfoResultAction;
-import org.jfrog.hudson.DeployerOverrider;
 import org.jfrog.hudson.ServerDetails;
 import org.jfrog.hudson.action.ActionableHelper;
-import org.jfrog.hudson.util.CredentialResolver;
+import org.jfrog.hudson.util.BuildInfoPropertyModel;
+import org.jfrog.hudson.util.BuildPropertiesFile;
 import org.jfrog.hudson.util.Credentials;
 import org.jfrog.hudson.util.FormValidations;
 import org.jfrog.hudson.util.IncludesExcludes;
@@ -60,7 +58,6 @@ import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
@@ -73,7 +70,7 @@ import java.util.Properties;
  * @deprecated Hudson 1.392 added native support for maven 3
  */
 @Deprecated
-public class ArtifactoryMaven3Configurator extends BuildWrapper implements DeployerOverrider {
+public class ArtifactoryMaven3Configurator extends BuildWrapper implements BuildInfoAwareConfigurator {
     /**
      * Repository URL and repository to deploy artifacts to
      */
@@ -107,11 +104,17 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
     private boolean disableLicenseAutoDiscovery;
     private final boolean discardOldBuilds;
 
+    /**
+     * Resolve into a local repository shared by the builds of the node, see {@link SharedLocalRepository}
+     */
+    private final boolean sharedLocalRepository;
+
     @DataBoundConstructor
     public ArtifactoryMaven3Configurator(ServerDetails details, Credentials overridingDeployerCredentials,
             IncludesExcludes artifactDeploymentPatterns, boolean deployArtifacts, boolean deployBuildInfo,
             boolean includeEnvVars, boolean runChecks, String violationRecipients, boolean includePublishArtifacts,
-            String scopes, boolean disableLicenseAutoDiscovery, boolean discardOldBuilds) {
+            String scopes, boolean disableLicenseAutoDiscovery, boolean discardOldBuilds,
+            boolean sharedLocalRepository) {
         this.details = details;
         this.overridingDeployerCredentials = overridingDeployerCredentials;
         this.artifactDeploymentPatterns = artifactDeploymentPatterns;
@@ -125,6 +128,7 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
         this.deployBuildInfo = deployBuildInfo;
         this.deployArtifacts = deployArtifacts;
         this.includeEnvVars = includeEnvVars;
+        this.sharedLocalRepository = sharedLocalRepository;
     }
 
     // NOTE: The following getters are used by jelly. Do not remove them
@@ -208,6 +212,10 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
         return runChecks;
     }
 
+    public boolean isSharedLocalRepository() {
+        return sharedLocalRepository;
+    }
+
     public ArtifactoryServer getArtifactoryServer(String artifactoryServerName) {
         List<ArtifactoryServer> servers = getDescriptor().getArtifactoryServers();
         for (ArtifactoryServer server : servers) {
@@ -240,11 +248,27 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
         }
 
         return new Environment() {
+            /**
+             * The properties file handed to the extractor, written on the first request for the environment
+             */
+            private FilePath buildInfoPropertiesFile;
+            private SharedLocalRepository localRepository;
+
             @Override
             public void buildEnvVars(Map<String, String> env) {
 
                 try {
-                    addBuilderInfoArguments(env, build, artifactoryServer);
+                    if (buildInfoPropertiesFile == null) {
+                        buildInfoPropertiesFile = writeBuildInfoProperties(env, build, artifactoryServer);
+                    }
+                    env.put(BuildInfoConfigProperties.PROP_PROPS_FILE, buildInfoPropertiesFile.getRemote());
+                    if (isSharedLocalRepository()) {
+                        if (localRepository == null) {
+                            localRepository = SharedLocalRepository.acquire(build, artifactoryServer,
+                                    details.downloadRepositoryKey);
+                        }
+                        env.put(SharedLocalRepository.PROP_LOCAL_REPOSITORY, localRepository.getLocalRepositoryPath());
+                    }
                 } catch (Exception e) {
                     listener.getLogger().
                             format("Failed to collect Artifactory Build Info to properties file: %s", e.getMessage()).
@@ -257,6 +281,12 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
             @Override
             public boolean tearDown(AbstractBuild build, BuildListener listener)
                     throws IOException, InterruptedException {
+                if (buildInfoPropertiesFile != null) {
+                    buildInfoPropertiesFile.delete();
+                }
+                if (localRepository != null) {
+                    localRepository.release();
+                }
                 Result result = build.getResult();
                 if (result == null || result.isWorseThan(Result.SUCCESS)) {
                     return false;
@@ -274,21 +304,34 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
         return (DescriptorImpl) super.getDescriptor();
     }
 
-    private void addBuilderInfoArguments(Map<String, String> env, AbstractBuild build,
+    /**
+     * @return The properties file handed to the extractor, see {@link BuildPropertiesFile}
+     */
+    private FilePath writeBuildInfoProperties(Map<String, String> env, AbstractBuild build,
             ArtifactoryServer selectedArtifactoryServer) throws IOException, InterruptedException {
 
         Properties props = new Properties();
 
         props.put(BuildInfoRecorder.ACTIVATE_RECORDER, Boolean.TRUE.toString());
+        BuildInfoPropertyModel.forBuild(build, this, selectedArtifactoryServer, env).putAll(props);
 
+        // maven 3 specific: the build name, license control details, the deploy (matrix params) properties and the
+        // build start time
         String buildName = build.getProject().getDisplayName();
         props.put(BuildInfoProperties.PROP_BUILD_NAME, buildName);
         props.put(ClientProperties.PROP_DEPLOY_PARAM_PROP_PREFIX + "build.name", buildName);
-
         String buildNumber = build.getNumber() + "";
-        props.put(BuildInfoProperties.PROP_BUILD_NUMBER, buildNumber);
         props.put(ClientProperties.PROP_DEPLOY_PARAM_PROP_PREFIX + "build.number", buildNumber);
 
+        if (isRunChecks()) {
+            if (StringUtils.isNotBlank(getViolationRecipients())) {
+                props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_VIOLATION_RECIPIENTS, getViolationRecipients());
+            }
+            if (StringUtils.isNotBlank(getScopes())) {
+                props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_SCOPES, getScopes());
+            }
+        }
+
         Date buildStartDate = build.getTimestamp().getTime();
         props.put(BuildInfoProperties.PROP_BUILD_STARTED,
                 new SimpleDateFormat(Build.STARTED_FORMAT).format(buildStartDate));
@@ -299,110 +342,24 @@ public class ArtifactoryMaven3Configurator extends BuildWrapper implements Deplo
 
         String vcsRevision = env.get("SVN_REVISION");
         if (StringUtils.isNotBlank(vcsRevision)) {
-            props.put(BuildInfoProperties.PROP_VCS_REVISION, vcsRevision);
             props.put(ClientProperties.PROP_DEPLOY_PARAM_PROP_PREFIX +
                     BuildInfoProperties.PROP_VCS_REVISION, vcsRevision);
         }
 
-        String buildUrl = ActionableHelper.getBuildUrl(build);
-        if (StringUtils.isNotBlank(buildUrl)) {
-            props.put(BuildInfoProperties.PROP_BUILD_URL, buildUrl);
-        }
-
-        String userName = "unknown";
         Cause.UpstreamCause parent = ActionableHelper.getUpstreamCause(build);
         if (parent != null) {
-            String parentProject = parent.getUpstreamProject();
-            props.put(BuildInfoProperties.PROP_PARENT_BUILD_NAME, parentProject);
             props.put(ClientProperties.PROP_DEPLOY_PARAM_PROP_PREFIX +
-                    BuildInfoProperties.PROP_PARENT_BUILD_NAME, parentProject);
-
-            String parentBuildNumber = parent.getUpstreamBuild() + "";
-            props.put(BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, parentBuildNumber);
+                    BuildInfoProperties.PROP_PARENT_BUILD_NAME, parent.getUpstreamProject());
             props.put(ClientProperties.PROP_DEPLOY_PARAM_PROP_PREFIX +
-                    BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, parentBuildNumber);
-            userName = "auto";
+                    BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, parent.getUpstreamBuild() + "");
         }
 
-        CauseAction action = ActionableHelper.getLatestAction(build, CauseAction.class);
-        if (action != null) {
-            for (Cause cause : action.getCauses()) {
-                if (cause instanceof Cause.UserCause) {
-                    userName = ((Cause.UserCause) cause).getUserName();
-                }
-            }
-        }
-
-        props.put(BuildInfoProperties.PROP_PRINCIPAL, userName);
-
-        props.put(BuildInfoProperties.PROP_AGENT_NAME, "Jenkins");
-        props.put(BuildInfoProperties.PROP_AGENT_VERSION, build.getHudsonVersion());
-
-        props.put(ClientProperties.PROP_CONTEXT_URL, selectedArtifactoryServer.getUrl());
-        props.put(ClientProperties.PROP_TIMEOUT, Integer.toString(selectedArtifactoryServer.getTimeout()));
-        props.put(ClientProperties.PROP_PUBLISH_REPOKEY, getDetails().repositoryKey);
         props.put(ClientProperties.PROP_PUBLISH_SNAPSHOTS_REPOKEY, getDetails().snapshotsRepositoryKey);
-
-        Credentials preferredDeployer = CredentialResolver.getPreferredDeployer(this, selectedArtifactoryServer);
-        if (StringUtils.isNotBlank(preferredDeployer.getUsername())) {
-            props.put(ClientProperties.PROP_PUBLISH_USERNAME, preferredDeployer.getUsername());
-            props.put(ClientProperties.PROP_PUBLISH_PASSWORD, preferredDeployer.getPassword());
-        }
-        props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_RUN_CHECKS, Boolean.toString(isRunChecks()));
-        props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_INCLUDE_PUBLISHED_ARTIFACTS,
-                Boolean.toString(isIncludePublishArtifacts()));
-        props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_AUTO_DISCOVER, Boolean.toString(isLicenseAutoDiscovery()));
-        if (isRunChecks()) {
-            if (StringUtils.isNotBlank(getViolationRecipients())) {
-                props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_VIOLATION_RECIPIENTS, getViolationRecipients());
-            }
-            if (StringUtils.isNotBlank(getScopes())) {
-                props.put(BuildInfoProperties.PROP_LICENSE_CONTROL_SCOPES, getScopes());
-            }
-        }
-        if (isDiscardOldBuilds()) {
-            LogRotator rotator = build.getProject().getLogRotator();
-            if (rotator != null) {
-                if (rotator.getNumToKeep() > -1) {
-                    props.put(BuildInfoProperties.PROP_BUILD_RETENTION_DAYS, String.valueOf(rotator.getNumToKeep()));
-                }
-                if (rotator.getDaysToKeep() > -1) {
-                    props.put(BuildInfoProperties.PROP_BUILD_RETENTION_MINIMUM_DATE,
-                            String.valueOf(rotator.getDaysToKeep()));
-                }
-            }
-        }
         props.put(ClientProperties.PROP_PUBLISH_ARTIFACT, Boolean.toString(deployArtifacts));
-
-        IncludesExcludes deploymentPatterns = getArtifactDeploymentPatterns();
-        if (deploymentPatterns != null) {
-            String includePatterns = deploymentPatterns.getIncludePatterns();
-            if (StringUtils.isNotBlank(includePatterns)) {
-                props.put(ClientProperties.PROP_PUBLISH_ARTIFACT_INCLUDE_PATTERNS, includePatterns);
-            }
-
-            String excludePatterns = deploymentPatterns.getExcludePatterns();
-            if (StringUtils.isNotBlank(excludePatterns)) {
-                props.put(ClientProperties.PROP_PUBLISH_ARTIFACT_EXCLUDE_PATTERNS, excludePatterns);
-            }
-        }
-
         props.put(ClientProperties.PROP_PUBLISH_BUILD_INFO, Boolean.toString(!isSkipBuildInfoDeploy()));
-        props.put(BuildInfoConfigProperties.PROP_INCLUDE_ENV_VARS, Boolean.toString(isIncludeEnvVars()));
         addEnvVars(env, build, props);
 
-        String propFilePath;
-        OutputStream fileOutputStream = null;
-        try {
-            FilePath tempFile = build.getWorkspace().createTextTempFile("buildInfo", "properties", "", false);
-            fileOutputStream = tempFile.write();
-            props.store(fileOutputStream, null);
-            propFilePath = tempFile.getRemote();
-        } finally {
-            Closeables.closeQuietly(fileOutputStream);
-        }
-
-        env.put(BuildInfoConfigProperties.PROP_PROPS_FILE, propFilePath);
+        return BuildPropertiesFile.write(build, "", props);
     }
 
     private void addEnvVars(Map<String, String> env, AbstractBuild build, Properties props) {
@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven3;
+
+import com.google.common.io.Closeables;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * The size and last access time of the artifacts of a shared local repository, see {@link SharedLocalRepository}.
+ * <p/>
+ * An artifact is a directory of the repository holding files, normally a groupId/artifactId/version directory, and
+ * covers the files directly within it. The index is written by the build releasing the repository, so the cleaner
+ * evicts artifacts without walking the repositories.
+ */
+class LocalRepositoryIndex {
+
+    static final String INDEX_FILE = ".index";
+
+    /**
+     * The file access time methods of java.nio.file, null before Java 7
+     */
+    private static final Method TO_PATH;
+    private static final Method READ_ATTRIBUTES;
+    private static final Class<?> BASIC_FILE_ATTRIBUTES;
+    private static final Object NO_LINK_OPTIONS;
+    private static final Method LAST_ACCESS_TIME;
+    private static final Method TO_MILLIS;
+
+    static {
+        Method toPath = null;
+        Method readAttributes = null;
+        Class<?> basicFileAttributes = null;
+        Object noLinkOptions = null;
+        Method lastAccessTime = null;
+        Method toMillis = null;
+        try {
+            Class<?> linkOptions = Class.forName("[Ljava.nio.file.LinkOption;");
+            basicFileAttributes = Class.forName("java.nio.file.attribute.BasicFileAttributes");
+            toPath = File.class.getMethod("toPath");
+            readAttributes = Class.forName("java.nio.file.Files").getMethod("readAttributes",
+                    Class.forName("java.nio.file.Path"), Class.class, linkOptions);
+            noLinkOptions = Array.newInstance(linkOptions.getComponentType(), 0);
+            lastAccessTime = basicFileAttributes.getMethod("lastAccessTime");
+            toMillis = Class.forName("java.nio.file.attribute.FileTime").getMethod("toMillis");
+        } catch (Exception e) {
+            // before Java 7, only the modification time is available
+            readAttributes = null;
+        }
+        TO_PATH = toPath;
+        READ_ATTRIBUTES = readAttributes;
+        BASIC_FILE_ATTRIBUTES = basicFileAttributes;
+        NO_LINK_OPTIONS = noLinkOptions;
+        LAST_ACCESS_TIME = lastAccessTime;
+        TO_MILLIS = toMillis;
+    }
+
+    private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+    /**
+     * Walks the repository directory and indexes its artifacts.
+     */
+    static LocalRepositoryIndex scan(File repositoryDir) {
+        LocalRepositoryIndex index = new LocalRepositoryIndex();
+        index.scan(repositoryDir, "");
+        return index;
+    }
+
+    private void scan(File dir, String path) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        long size = 0;
+        long lastAccess = 0;
+        boolean hasFiles = false;
+        for (File child : children) {
+            if (child.isDirectory()) {
+                scan(child, path.length() == 0 ? child.getName() : path + "/" + child.getName());
+            } else if (path.length() > 0) {
+                hasFiles = true;
+                size += child.length();
+                lastAccess = Math.max(lastAccess, getLastAccessTime(child));
+            }
+        }
+        if (hasFiles) {
+            put(path, size, lastAccess);
+        }
+    }
+
+    /**
+     * @return The index of the repository, null if it was never indexed or the index can not be read
+     */
+    static LocalRepositoryIndex load(File repositoryRoot) throws IOException {
+        File indexFile = new File(repositoryRoot, INDEX_FILE);
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(indexFile);
+        try {
+            properties.load(in);
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+        LocalRepositoryIndex index = new LocalRepositoryIndex();
+        for (Map.Entry<Object, Object> property : properties.entrySet()) {
+            String[] sizeAndLastAccess = property.getValue().toString().split(",");
+            try {
+                index.put(property.getKey().toString(), Long.parseLong(sizeAndLastAccess[0]),
+                        Long.parseLong(sizeAndLastAccess[1]));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Replaces the index of the repository, readers see either the previous or the new index.
+     */
+    void store(File repositoryRoot) throws IOException {
+        Properties properties = new Properties();
+        for (Entry entry : entries.values()) {
+            properties.setProperty(entry.getPath(), entry.getSize() + "," + entry.getLastAccess());
+        }
+        File indexFile = new File(repositoryRoot, INDEX_FILE);
+        File tempFile = new File(repositoryRoot, INDEX_FILE + ".tmp");
+        OutputStream out = new FileOutputStream(tempFile);
+        try {
+            properties.store(out, null);
+        } finally {
+            Closeables.closeQuietly(out);
+        }
+        if (!tempFile.renameTo(indexFile) && !(indexFile.delete() && tempFile.renameTo(indexFile))) {
+            throw new IOException("Failed to replace " + indexFile);
+        }
+    }
+
+    void put(String path, long size, long lastAccess) {
+        entries.put(path, new Entry(path, size, lastAccess));
+    }
+
+    void remove(String path) {
+        entries.remove(path);
+    }
+
+    Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return The total size of the indexed artifacts, in bytes
+     */
+    long getSize() {
+        long size = 0;
+        for (Entry entry : entries.values()) {
+            size += entry.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * @return The last access time of the file where the JVM exposes it, the modification time otherwise
+     */
+    static long getLastAccessTime(File file) {
+        long lastModified = file.lastModified();
+        if (READ_ATTRIBUTES != null) {
+            try {
+                Object attributes = READ_ATTRIBUTES.invoke(null, TO_PATH.invoke(file), BASIC_FILE_ATTRIBUTES,
+                        NO_LINK_OPTIONS);
+                return Math.max(lastModified, (Long) TO_MILLIS.invoke(LAST_ACCESS_TIME.invoke(attributes)));
+            } catch (Exception e) {
+                // the file is gone or its attributes can not be read
+            }
+        }
+        return lastModified;
+    }
+
+    static class Entry {
+        private final String path;
+        private final long size;
+        private final long lastAccess;
+
+        private Entry(String path, long size, long lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+        /**
+         * @return The directory of the artifact relative to the repository directory, separated by '/'
+         */
+        String getPath() {
+            return path;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        long getLastAccess() {
+            return lastAccess;
+        }
+    }
+}
@@ -43,6 +43,8 @@ import hudson.tools.ToolLocationNodeProperty;
 import hudson.util.ArgumentListBuilder;
 import hudson.util.DescribableList;
 import net.sf.json.JSONObject;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jfrog.build.api.BuildInfoConfigProperties;
 import org.jfrog.build.extractor.maven.Maven3BuildInfoLogger;
@@ -52,6 +54,7 @@ import org.kohsuke.stapler.StaplerRequest;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.List;
@@ -67,6 +70,14 @@ public class Maven3Builder extends Builder {
 
     public static final String CLASSWORLDS_LAUNCHER = "org.codehaus.plexus.classworlds.launcher.Launcher";
 
+    private static final String CLASSWORLDS_CONF_RESOURCE = "org/jfrog/hudson/maven3/classworlds.conf";
+
+    /**
+     * The classworlds conf packaged with this plugin, resolved on first use
+     */
+    private static File classworldsConfFile;
+    private static String classworldsConf;
+
     private final String mavenName;
     private final String rootPom;
     private final String goals;
@@ -169,6 +180,11 @@ public class Maven3Builder extends Builder {
         // maven home
         args.add("-Dmaven.home=" + mavenHome.getRemote());
 
+        String localRepository = env.get(SharedLocalRepository.PROP_LOCAL_REPOSITORY);
+        if (artifactoryIntegration && StringUtils.isNotBlank(localRepository)) {
+            args.add("-D" + SharedLocalRepository.PROP_LOCAL_REPOSITORY + "=" + localRepository);
+        }
+
         String classworldsConfPath;
         if (artifactoryIntegration) {
 
@@ -179,23 +195,16 @@ public class Maven3Builder extends Builder {
 
             args.add("-Dm3plugin.lib=" + actualDependencyDirectory.getRemote());
 
-            URL classworldsResource =
-                    getClass().getClassLoader().getResource("org/jfrog/hudson/maven3/classworlds.conf");
-
-            File classworldsConfFile = new File(URLDecoder.decode(classworldsResource.getFile(), "utf-8"));
-            if (!classworldsConfFile.exists()) {
-                listener.error("Unable to locate classworlds configuration file under " +
-                        classworldsConfFile.getAbsolutePath());
-                throw new Run.RunnerAbortedException();
-            }
-
-            //If we are on a remote slave, make a temp copy of the customized classworlds conf
+            //If we are on a remote slave, use a copy of the customized classworlds conf shared by the node builds
             if (Computer.currentComputer() instanceof SlaveComputer) {
-
-                FilePath remoteClassworlds = build.getWorkspace().createTextTempFile("classworlds", "conf", "", false);
-                remoteClassworlds.copyFrom(classworldsResource);
-                classworldsConfPath = remoteClassworlds.getRemote();
+                classworldsConfPath = actualDependencyDirectory.act(new ClassworldsConfWriter(getClassworldsConf()));
             } else {
+                File classworldsConfFile = getClassworldsConfFile();
+                if (!classworldsConfFile.exists()) {
+                    listener.error("Unable to locate classworlds configuration file under " +
+                            classworldsConfFile.getAbsolutePath());
+                    throw new Run.RunnerAbortedException();
+                }
                 classworldsConfPath = classworldsConfFile.getCanonicalPath();
             }
         } else {
@@ -225,6 +234,61 @@ public class Maven3Builder extends Builder {
         return args;
     }
 
+    private static synchronized File getClassworldsConfFile() throws IOException {
+        if (classworldsConfFile == null) {
+            URL classworldsResource = Maven3Builder.class.getClassLoader().getResource(CLASSWORLDS_CONF_RESOURCE);
+            classworldsConfFile = new File(URLDecoder.decode(classworldsResource.getFile(), "utf-8"));
+        }
+        return classworldsConfFile;
+    }
+
+    private static synchronized String getClassworldsConf() throws IOException {
+        if (classworldsConf == null) {
+            InputStream in = Maven3Builder.class.getClassLoader().getResourceAsStream(CLASSWORLDS_CONF_RESOURCE);
+            try {
+                classworldsConf = IOUtils.toString(in, "utf-8");
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        }
+        return classworldsConf;
+    }
+
+    /**
+     * Writes the classworlds conf to the node in one round trip, unless an identical copy is already there. The file
+     * is written to a temp file first and then renamed, so concurrent builds never read a partially written file.
+     */
+    private static class ClassworldsConfWriter implements FilePath.FileCallable<String> {
+        private final String content;
+
+        private ClassworldsConfWriter(String content) {
+            this.content = content;
+        }
+
+        public String invoke(File dir, VirtualChannel channel) throws IOException {
+            File confFile = new File(dir, "classworlds.conf");
+            if (confFile.isFile() && content.equals(FileUtils.readFileToString(confFile, "utf-8"))) {
+                return confFile.getAbsolutePath();
+            }
+            File tempFile = File.createTempFile("classworlds", ".tmp", dir);
+            try {
+                FileUtils.writeStringToFile(tempFile, content, "utf-8");
+                if (!tempFile.renameTo(confFile)) {
+                    // windows won't rename over an existing file
+                    confFile.delete();
+                    if (!tempFile.renameTo(confFile)) {
+                        throw new IOException("Failed to rename " + tempFile + " to " + confFile);
+                    }
+                }
+            } finally {
+                tempFile.delete();
+            }
+            return confFile.getAbsolutePath();
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
     private FilePath getMavenHomeDir(AbstractBuild<?, ?> build, BuildListener listener, EnvVars env) {
         Computer computer = Computer.currentComputer();
         VirtualChannel virtualChannel = computer.getChannel();
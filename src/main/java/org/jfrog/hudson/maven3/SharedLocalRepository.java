@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven3;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.util.PluginDependencyHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A Maven local repository shared by the builds of a node, per Artifactory server and resolution repository.
+ * <p/>
+ * A repository is used by one build at a time: a build leases the first repository of its server and resolution
+ * repository which no other build holds, and a new one is created when they are all held. Maven therefore never
+ * resolves into a repository another build writes to, artifacts are downloaded once per repository rather than once
+ * per build. Leases are marker files taken and removed under a lock file of the node. The cleaner refreshes the
+ * markers of the running builds, so only markers left behind by builds which died without cleaning up become stale,
+ * however long a build runs.
+ * <p/>
+ * The build releasing a repository indexes the size and last access time of its artifacts, see
+ * {@link LocalRepositoryIndex}. Once the repositories of a node grow beyond {@link #MAX_SIZE},
+ * {@link SharedLocalRepositoryCleaner} leases the repositories no build holds and evicts their least recently used
+ * artifacts, as recorded in the indexes.
+ */
+public class SharedLocalRepository {
+
+    /**
+     * The system property of the repository location passed to Maven
+     */
+    public static final String PROP_LOCAL_REPOSITORY = "maven.repo.local";
+
+    /**
+     * Upper bound of the total size of the shared repositories of a node, in bytes
+     */
+    public static final long MAX_SIZE =
+            Long.getLong(SharedLocalRepository.class.getName() + ".maxSize", 10L * 1024 * 1024 * 1024);
+
+    /**
+     * Markers not refreshed for this long belong to builds which died without cleaning up
+     */
+    static final long STALE_MARKER_AGE = 2 * 24 * 60 * 60 * 1000L;
+
+    static final String IN_USE_DIR = ".in-use";
+    static final String REPOSITORY_DIR = "repository";
+
+    /**
+     * The marker of the cleaner while it evicts from a repository
+     */
+    static final String CLEANER_MARKER = "cleaner";
+    private static final String LOCK_FILE = ".lock";
+
+    /**
+     * Guards the node lock file within the node JVM, file locks are held on behalf of the whole JVM
+     */
+    private static final Object NODE_LOCK = new Object();
+
+    private final FilePath repositoryRoot;
+    private final String marker;
+
+    private SharedLocalRepository(FilePath repositoryRoot, String marker) {
+        this.repositoryRoot = repositoryRoot;
+        this.marker = marker;
+    }
+
+    /**
+     * Leases a repository of the server and resolution repository to the build, creating it if needed.
+     *
+     * @param resolutionRepositoryKey The resolution repository, null if none is selected
+     */
+    public static SharedLocalRepository acquire(AbstractBuild build, ArtifactoryServer server,
+            String resolutionRepositoryKey) throws IOException, InterruptedException {
+        String repositoryName = sanitize(server.getUrl()) + "_" +
+                sanitize(StringUtils.defaultIfEmpty(resolutionRepositoryKey, "default"));
+        FilePath repositoriesDir = getRepositoriesDir(PluginDependencyHelper.getNodeCacheDir(build));
+        String marker = getMarker(build);
+        String leased = repositoriesDir.act(new Acquire(repositoryName, marker));
+        return new SharedLocalRepository(new FilePath(repositoriesDir, leased), marker);
+    }
+
+    /**
+     * @return The name of the marker file the build leaves in the repository it holds
+     */
+    static String getMarker(AbstractBuild build) {
+        return sanitize(build.getProject().getFullName()) + "-" + build.getNumber();
+    }
+
+    /**
+     * @return The directory holding the shared repositories of a node
+     */
+    static FilePath getRepositoriesDir(FilePath nodeCacheDir) {
+        return new FilePath(nodeCacheDir, "repositories");
+    }
+
+    /**
+     * @return The path of the repository to pass to Maven
+     */
+    public String getLocalRepositoryPath() {
+        return new FilePath(repositoryRoot, REPOSITORY_DIR).getRemote();
+    }
+
+    /**
+     * Indexes the artifacts of the repository and ends the lease of the build.
+     */
+    public void release() throws IOException, InterruptedException {
+        repositoryRoot.act(new Release(marker));
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^\\w.-]", "_");
+    }
+
+    /**
+     * Runs the action holding the lock of the repositories directory.
+     */
+    static <T> T withNodeLock(File repositoriesDir, LockedAction<T> action) throws IOException {
+        synchronized (NODE_LOCK) {
+            if (!repositoriesDir.isDirectory() && !repositoriesDir.mkdirs()) {
+                throw new IOException("Failed to create " + repositoriesDir);
+            }
+            RandomAccessFile lockFile = new RandomAccessFile(new File(repositoriesDir, LOCK_FILE), "rw");
+            try {
+                FileLock lock = lockFile.getChannel().lock();
+                try {
+                    return action.run();
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                lockFile.close();
+            }
+        }
+    }
+
+    interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * @param runningMarkers The markers of the builds known to be running, refreshed rather than checked for staleness
+     * @return The markers of the builds holding the repository, stale markers are deleted
+     */
+    static List<File> getLiveMarkers(File repositoryRoot, Set<String> runningMarkers) {
+        List<File> live = new ArrayList<File>();
+        File[] markers = new File(repositoryRoot, IN_USE_DIR).listFiles();
+        if (markers != null) {
+            long now = System.currentTimeMillis();
+            long staleBefore = now - STALE_MARKER_AGE;
+            for (File marker : markers) {
+                if (runningMarkers.contains(marker.getName())) {
+                    marker.setLastModified(now);
+                    live.add(marker);
+                } else if (marker.lastModified() < staleBefore) {
+                    marker.delete();
+                } else {
+                    live.add(marker);
+                }
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Leaves the marker in the repository, to be called holding the node lock.
+     */
+    private static void lease(File repositoryRoot, String marker) throws IOException {
+        File inUse = new File(repositoryRoot, IN_USE_DIR);
+        if (!inUse.isDirectory() && !inUse.mkdirs()) {
+            throw new IOException("Failed to create " + inUse);
+        }
+        FileUtils.touch(new File(inUse, marker));
+    }
+
+    /**
+     * Evicts the least recently used artifacts of the repositories until the total size is within the maximum size.
+     * The repositories must be leased by the caller, repositories without an index are indexed first.
+     *
+     * @param otherSize The size of the repositories of the node held by builds
+     * @return The number of evicted artifacts
+     */
+    static int evict(List<File> repositoryRoots, long otherSize, long maxSize) throws IOException {
+        long totalSize = otherSize;
+        Map<LocalRepositoryIndex.Entry, File> candidates = new LinkedHashMap<LocalRepositoryIndex.Entry, File>();
+        Map<File, LocalRepositoryIndex> indexes = new LinkedHashMap<File, LocalRepositoryIndex>();
+        for (File repositoryRoot : repositoryRoots) {
+            LocalRepositoryIndex index = LocalRepositoryIndex.load(repositoryRoot);
+            if (index == null) {
+                index = LocalRepositoryIndex.scan(new File(repositoryRoot, REPOSITORY_DIR));
+                index.store(repositoryRoot);
+            }
+            indexes.put(repositoryRoot, index);
+            totalSize += index.getSize();
+            for (LocalRepositoryIndex.Entry entry : index.getEntries()) {
+                candidates.put(entry, repositoryRoot);
+            }
+        }
+        if (totalSize <= maxSize) {
+            return 0;
+        }
+        List<LocalRepositoryIndex.Entry> leastRecentlyUsedFirst =
+                new ArrayList<LocalRepositoryIndex.Entry>(candidates.keySet());
+        Collections.sort(leastRecentlyUsedFirst, new Comparator<LocalRepositoryIndex.Entry>() {
+            public int compare(LocalRepositoryIndex.Entry o1, LocalRepositoryIndex.Entry o2) {
+                long lastAccess1 = o1.getLastAccess();
+                long lastAccess2 = o2.getLastAccess();
+                return lastAccess1 < lastAccess2 ? -1 : (lastAccess1 == lastAccess2 ? 0 : 1);
+            }
+        });
+        Set<File> evictedFrom = new HashSet<File>();
+        int evicted = 0;
+        for (LocalRepositoryIndex.Entry entry : leastRecentlyUsedFirst) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+            File repositoryRoot = candidates.get(entry);
+            deleteArtifact(new File(repositoryRoot, REPOSITORY_DIR), entry.getPath());
+            indexes.get(repositoryRoot).remove(entry.getPath());
+            evictedFrom.add(repositoryRoot);
+            totalSize -= entry.getSize();
+            evicted++;
+        }
+        for (File repositoryRoot : evictedFrom) {
+            indexes.get(repositoryRoot).store(repositoryRoot);
+        }
+        return evicted;
+    }
+
+    /**
+     * Deletes the files of the artifact directory, and the directories left empty up to the repository directory.
+     */
+    private static void deleteArtifact(File repositoryDir, String path) throws IOException {
+        File artifactDir = new File(repositoryDir, path);
+        File[] files = artifactDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && !file.delete()) {
+                    throw new IOException("Failed to delete " + file);
+                }
+            }
+        }
+        for (File dir = artifactDir; !dir.equals(repositoryDir) && dir.delete(); dir = dir.getParentFile()) {
+            // the directory was empty
+        }
+    }
+
+    static class Acquire implements FilePath.FileCallable<String> {
+        private final String repositoryName;
+        private final String marker;
+
+        Acquire(String repositoryName, String marker) {
+            this.repositoryName = repositoryName;
+            this.marker = marker;
+        }
+
+        /**
+         * @return The name of the leased repository
+         */
+        public String invoke(final File repositoriesDir, VirtualChannel channel) throws IOException {
+            return withNodeLock(repositoriesDir, new LockedAction<String>() {
+                public String run() throws IOException {
+                    for (int i = 1; ; i++) {
+                        File repositoryRoot = new File(repositoriesDir, repositoryName + "-" + i);
+                        if (getLiveMarkers(repositoryRoot, Collections.<String>emptySet()).isEmpty()) {
+                            lease(repositoryRoot, marker);
+                            new File(repositoryRoot, REPOSITORY_DIR).mkdirs();
+                            return repositoryRoot.getName();
+                        }
+                    }
+                }
+            });
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    static class Release implements FilePath.FileCallable<Void> {
+        private final String marker;
+
+        Release(String marker) {
+            this.marker = marker;
+        }
+
+        public Void invoke(final File repositoryRoot, VirtualChannel channel) throws IOException {
+            if (repositoryRoot.isDirectory()) {
+                // the build still holds the repository, no other build or cleaner writes to it
+                LocalRepositoryIndex.scan(new File(repositoryRoot, REPOSITORY_DIR)).store(repositoryRoot);
+            }
+            return withNodeLock(repositoryRoot.getParentFile(), new LockedAction<Void>() {
+                public Void run() throws IOException {
+                    new File(new File(repositoryRoot, IN_USE_DIR), marker).delete();
+                    return null;
+                }
+            });
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Refreshes the markers of the running builds, leases the repositories of the node which no build holds and
+     * evicts their least recently used artifacts until the total size of the repositories is within the maximum
+     * size. Repositories left empty are deleted.
+     */
+    static class Evict implements FilePath.FileCallable<Integer> {
+        private final long maxSize;
+        private final HashSet<String> runningMarkers;
+
+        /**
+         * @param runningMarkers The markers of the running builds, see {@link SharedLocalRepository#getMarker}
+         */
+        Evict(long maxSize, Set<String> runningMarkers) {
+            this.maxSize = maxSize;
+            this.runningMarkers = new HashSet<String>(runningMarkers);
+        }
+
+        /**
+         * @return The number of evicted artifacts
+         */
+        public Integer invoke(final File repositoriesDir, VirtualChannel channel) throws IOException {
+            if (!repositoriesDir.isDirectory()) {
+                return 0;
+            }
+            final List<File> leased = new ArrayList<File>();
+            final List<File> held = new ArrayList<File>();
+            withNodeLock(repositoriesDir, new LockedAction<Void>() {
+                public Void run() throws IOException {
+                    File[] repositories = repositoriesDir.listFiles();
+                    if (repositories != null) {
+                        for (File repositoryRoot : repositories) {
+                            if (!repositoryRoot.isDirectory()) {
+                                continue;
+                            }
+                            if (getLiveMarkers(repositoryRoot, runningMarkers).isEmpty()) {
+                                lease(repositoryRoot, CLEANER_MARKER);
+                                leased.add(repositoryRoot);
+                            } else {
+                                held.add(repositoryRoot);
+                            }
+                        }
+                    }
+                    return null;
+                }
+            });
+            try {
+                long heldSize = 0;
+                for (File repositoryRoot : held) {
+                    // as of the last release, the index is replaced atomically
+                    LocalRepositoryIndex index = LocalRepositoryIndex.load(repositoryRoot);
+                    if (index != null) {
+                        heldSize += index.getSize();
+                    }
+                }
+                return evict(leased, heldSize, maxSize);
+            } finally {
+                withNodeLock(repositoriesDir, new LockedAction<Void>() {
+                    public Void run() throws IOException {
+                        for (File repositoryRoot : leased) {
+                            LocalRepositoryIndex index = LocalRepositoryIndex.load(repositoryRoot);
+                            if (index != null && index.isEmpty()) {
+                                FileUtils.deleteDirectory(repositoryRoot);
+                            } else {
+                                new File(new File(repositoryRoot, IN_USE_DIR), CLEANER_MARKER).delete();
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven3;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.PeriodicWork;
+import hudson.model.Queue;
+import org.jfrog.hudson.util.PluginDependencyHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the total size of the shared local repositories of every online node within
+ * {@link SharedLocalRepository#MAX_SIZE} by evicting their least recently used artifacts, and refreshes the repository
+ * markers of the running builds, see {@link SharedLocalRepository}.
+ */
+@Extension
+public class SharedLocalRepositoryCleaner extends PeriodicWork {
+    private static final Logger log = Logger.getLogger(SharedLocalRepositoryCleaner.class.getName());
+
+    @Override
+    public long getRecurrencePeriod() {
+        return HOUR;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        Set<String> runningMarkers = getRunningMarkers();
+        List<Node> nodes = new ArrayList<Node>();
+        nodes.add(Hudson.getInstance());
+        nodes.addAll(Hudson.getInstance().getNodes());
+        for (Node node : nodes) {
+            FilePath nodeCacheDir = PluginDependencyHelper.getNodeCacheDir(node);
+            if (nodeCacheDir == null) {
+                // offline
+                continue;
+            }
+            FilePath repositoriesDir = SharedLocalRepository.getRepositoriesDir(nodeCacheDir);
+            try {
+                int evicted = repositoriesDir.act(
+                        new SharedLocalRepository.Evict(SharedLocalRepository.MAX_SIZE, runningMarkers));
+                if (evicted > 0) {
+                    log.info("Evicted " + evicted + " artifacts from the shared local repositories of " +
+                            node.getDisplayName());
+                }
+            } catch (IOException e) {
+                log.warning("Failed to evict the shared local repositories of " + node.getDisplayName() + ": " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The repository markers of all the builds currently running
+     */
+    private Set<String> getRunningMarkers() {
+        Set<String> markers = new HashSet<String>();
+        for (Computer computer : Hudson.getInstance().getComputers()) {
+            for (Executor executor : computer.getExecutors()) {
+                Queue.Executable executable = executor.getCurrentExecutable();
+                if (executable instanceof AbstractBuild) {
+                    markers.add(SharedLocalRepository.getMarker((AbstractBuild) executable));
+                }
+            }
+        }
+        return markers;
+    }
+}
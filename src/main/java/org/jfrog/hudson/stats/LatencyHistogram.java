@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram. Recording a value is a couple of atomic increments, no locks and no allocation.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Upper bounds (inclusive, in milliseconds) of the histogram buckets. The last bucket catches everything above.
+     */
+    private static final long[] BUCKET_BOUNDS =
+            {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis) {
+        buckets.incrementAndGet(bucketOf(millis));
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        long currentMax;
+        while (millis > (currentMax = maxMillis.get())) {
+            if (maxMillis.compareAndSet(currentMax, millis)) {
+                break;
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMeanMillis() {
+        long c = count.get();
+        return c == 0 ? 0 : totalMillis.get() / c;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the requested percentile. The value is an approximation, accurate
+     * up to the bucket resolution.
+     *
+     * @param percentile Percentile between 0 and 100
+     * @return Latency in milliseconds, or 0 if nothing was recorded
+     */
+    public long getPercentileMillis(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long threshold = (long) Math.ceil(total * (percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= threshold) {
+                return i < BUCKET_BOUNDS.length ? BUCKET_BOUNDS[i] : getMaxMillis();
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * @return The bucket upper bounds in milliseconds, the last bucket (unbounded) is not included
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * @return Number of values recorded in each bucket, the last element is the unbounded bucket
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (millis <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+/**
+ * The kinds of requests the plugin sends to an Artifactory server.
+ */
+public enum Operation {
+    DEPLOY("deploy"),
+    PROPERTIES("properties"),
+    BUILD_INFO("buildInfo"),
+    REPOSITORY_LIST("repositoryList"),
+    VERSION("version"),
+    PROMOTION("promotion");
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return Short name used in the metrics page and in the JMX object names
+     */
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histogram of a single operation type against a single Artifactory server.
+ */
+public class OperationStatistics implements OperationStatisticsMBean {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    void record(long millis, long transferredBytes, boolean success) {
+        requests.incrementAndGet();
+        if (!success) {
+            failures.incrementAndGet();
+        }
+        if (transferredBytes > 0) {
+            bytes.addAndGet(transferredBytes);
+        }
+        latency.record(millis);
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getMeanLatencyMillis() {
+        return latency.getMeanMillis();
+    }
+
+    public long getMaxLatencyMillis() {
+        return latency.getMaxMillis();
+    }
+
+    public long get50thPercentileLatencyMillis() {
+        return latency.getPercentileMillis(50);
+    }
+
+    public long get95thPercentileLatencyMillis() {
+        return latency.getPercentileMillis(95);
+    }
+
+    public long get99thPercentileLatencyMillis() {
+        return latency.getPercentileMillis(99);
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latency;
+    }
+}
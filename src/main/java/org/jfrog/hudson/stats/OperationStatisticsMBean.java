@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+/**
+ * JMX view of the {@link OperationStatistics} of a single operation type against a single Artifactory server.
+ */
+public interface OperationStatisticsMBean {
+
+    long getRequestCount();
+
+    long getFailureCount();
+
+    long getBytes();
+
+    long getMeanLatencyMillis();
+
+    long getMaxLatencyMillis();
+
+    long get50thPercentileLatencyMillis();
+
+    long get95thPercentileLatencyMillis();
+
+    long get99thPercentileLatencyMillis();
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin-wide registry of the per-server {@link ServerStatistics}. Each server's statistics are registered in the
+ * platform MBean server under the <tt>org.jfrog.hudson</tt> domain the first time they are requested.
+ */
+public abstract class PublishingStatistics {
+    private static final Logger log = Logger.getLogger(PublishingStatistics.class.getName());
+
+    public static final String JMX_DOMAIN = "org.jfrog.hudson";
+
+    private static final ConcurrentMap<String, ServerStatistics> servers =
+            new ConcurrentHashMap<String, ServerStatistics>();
+
+    private PublishingStatistics() {
+    }
+
+    /**
+     * Returns the statistics of the given Artifactory server, creating (and registering) them on first use.
+     *
+     * @param url The Artifactory server URL
+     * @return The server statistics, never null
+     */
+    public static ServerStatistics forServer(String url) {
+        ServerStatistics statistics = servers.get(url);
+        if (statistics == null) {
+            ServerStatistics newStatistics = new ServerStatistics(url);
+            statistics = servers.putIfAbsent(url, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+                register(statistics);
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * @return Statistics of all the servers requests were sent to, sorted by URL
+     */
+    public static List<ServerStatistics> getAll() {
+        List<ServerStatistics> all = new ArrayList<ServerStatistics>(servers.values());
+        Collections.sort(all, new Comparator<ServerStatistics>() {
+            public int compare(ServerStatistics o1, ServerStatistics o2) {
+                return o1.getUrl().compareTo(o2.getUrl());
+            }
+        });
+        return all;
+    }
+
+    private static void register(ServerStatistics statistics) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            String server = ObjectName.quote(statistics.getUrl());
+            mBeanServer.registerMBean(statistics,
+                    new ObjectName(JMX_DOMAIN + ":type=ArtifactoryServer,server=" + server));
+            for (Operation operation : Operation.values()) {
+                mBeanServer.registerMBean(statistics.getOperationStatistics(operation), new ObjectName(
+                        JMX_DOMAIN + ":type=ArtifactoryServer,server=" + server + ",operation=" + operation.getKey()));
+            }
+        } catch (Exception e) {
+            // statistics are still available through the metrics page
+            log.log(Level.WARNING, "Failed to register JMX statistics of " + statistics.getUrl() + ": " +
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.RootAction;
+import org.jfrog.hudson.maven2.BuildInfoOutbox;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Exposes the {@link PublishingStatistics} as a plain text page under <tt>/artifactory-metrics</tt> of the Hudson root,
+ * one <tt>name{labels} value</tt> sample per line so it can be scraped by monitoring tools.
+ */
+@Extension
+public class PublishingStatisticsAction implements RootAction {
+
+    public String getIconFileName() {
+        // not shown in the side panel
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "Artifactory Metrics";
+    }
+
+    public String getUrlName() {
+        return "artifactory-metrics";
+    }
+
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Hudson.getInstance().checkPermission(Hudson.READ);
+        rsp.setContentType("text/plain;charset=UTF-8");
+        PrintWriter writer = rsp.getWriter();
+        long[] bounds = LatencyHistogram.getBucketBounds();
+        writer.append("artifactory_build_info_outbox_pending ").println(BuildInfoOutbox.get().getPendingCount());
+        for (ServerStatistics server : PublishingStatistics.getAll()) {
+            String serverLabel = "server=\"" + escapeLabelValue(server.getUrl()) + "\"";
+            sample(writer, "artifactory_active_requests", serverLabel, server.getActiveRequests());
+            for (Operation operation : Operation.values()) {
+                OperationStatistics stats = server.getOperationStatistics(operation);
+                String labels = serverLabel + ",operation=\"" + operation.getKey() + "\"";
+                sample(writer, "artifactory_requests_total", labels, stats.getRequestCount());
+                sample(writer, "artifactory_request_failures_total", labels, stats.getFailureCount());
+                sample(writer, "artifactory_request_bytes_total", labels, stats.getBytes());
+                sample(writer, "artifactory_request_latency_mean_ms", labels, stats.getMeanLatencyMillis());
+                sample(writer, "artifactory_request_latency_max_ms", labels, stats.getMaxLatencyMillis());
+                long[] counts = stats.getLatencyHistogram().getBucketCounts();
+                long cumulative = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    cumulative += counts[i];
+                    String le = i < bounds.length ? String.valueOf(bounds[i]) : "+Inf";
+                    sample(writer, "artifactory_request_latency_ms_bucket", labels + ",le=\"" + le + "\"",
+                            cumulative);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Escapes a label value of the text exposition format: backslash, double quote and line feed.
+     */
+    private static String escapeLabelValue(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                escaped.append('\\').append(c);
+            } else if (c == '\n') {
+                escaped.append("\\n");
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private void sample(PrintWriter writer, String name, String labels, long value) {
+        writer.append(name).append('{').append(labels).append("} ").println(value);
+    }
+}
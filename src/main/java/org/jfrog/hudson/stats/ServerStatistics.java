@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.stats;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishing statistics of a single Artifactory server. Callers wrap each request with {@link #requestStarted()} and
+ * {@link #requestCompleted(Operation, long, long, boolean)}:
+ * <pre>
+ * long start = stats.requestStarted();
+ * boolean success = false;
+ * try {
+ *     client.deployArtifact(details);
+ *     success = true;
+ * } finally {
+ *     stats.requestCompleted(Operation.DEPLOY, start, file.length(), success);
+ * }
+ * </pre>
+ */
+public class ServerStatistics implements ServerStatisticsMBean {
+
+    private final String url;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final Map<Operation, OperationStatistics> operations;
+
+    ServerStatistics(String url) {
+        this.url = url;
+        Map<Operation, OperationStatistics> map = new EnumMap<Operation, OperationStatistics>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            map.put(operation, new OperationStatistics());
+        }
+        // never modified after construction, safe for concurrent reads
+        operations = Collections.unmodifiableMap(map);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getActiveRequests() {
+        return activeRequests.get();
+    }
+
+    public OperationStatistics getOperationStatistics(Operation operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * Marks the start of a request.
+     *
+     * @return The start time to pass to {@link #requestCompleted(Operation, long, long, boolean)}
+     */
+    public long requestStarted() {
+        activeRequests.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a request started with {@link #requestStarted()}.
+     *
+     * @param operation The request type
+     * @param startTime The value returned by {@link #requestStarted()}
+     * @param bytes     Number of bytes sent, 0 if unknown
+     * @param success   False if the request failed
+     */
+    public void requestCompleted(Operation operation, long startTime, long bytes, boolean success) {
+        activeRequests.decrementAndGet();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        operations.get(operation).record(millis, bytes, success);
+    }
+}
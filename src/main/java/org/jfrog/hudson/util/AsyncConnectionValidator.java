@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import hudson.Util;
+import hudson.util.FormValidation;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.api.util.NullLog;
+import org.jfrog.build.client.ArtifactoryBuildInfoClient;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the connection to an Artifactory URL for form validation without tying up the request threads. Checks run
+ * on a small bounded pool, concurrent checks of the same (url, user, password) share a single request and results are
+ * reused for a short while, so validation requests fired while the user is still typing stay cheap.
+ */
+public class AsyncConnectionValidator {
+
+    private static final long RESULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * How long a validation request waits for the check before answering that it is still in progress
+     */
+    private static final long WAIT_MILLIS = TimeUnit.SECONDS.toMillis(3);
+    private static final int THREADS = 2;
+    private static final int MAX_QUEUED_CHECKS = 16;
+
+    private final ExecutorService executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(MAX_QUEUED_CHECKS), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Artifactory connection check " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final ConcurrentMap<String, Check> checks = new ConcurrentHashMap<String, Check>();
+
+    /**
+     * Returns the outcome of the connection check of the given URL and credentials, starting a new check if there is no
+     * recent or in-flight one.
+     *
+     * @param url      Artifactory URL
+     * @param username User name, may be blank for anonymous access
+     * @param password Clear-text password
+     * @return The check result, or a warning if the check is still running
+     */
+    public FormValidation validate(final String url, final String username, final String password) {
+        purgeExpired();
+        String key = url + '\n' + StringUtils.defaultString(username) + '\n' + digest(password);
+        Check check = checks.get(key);
+        if (check == null || check.isExpired()) {
+            Check newCheck = new Check(url, username, password);
+            boolean added = check == null ? checks.putIfAbsent(key, newCheck) == null :
+                    checks.replace(key, check, newCheck);
+            if (added) {
+                try {
+                    executor.execute(newCheck);
+                } catch (RejectedExecutionException e) {
+                    checks.remove(key, newCheck);
+                    return FormValidation.warning("Too many connection checks in progress, please try again later");
+                }
+            }
+            check = checks.get(key);
+            if (check == null) {
+                // expired and purged by a concurrent request in the meantime
+                return FormValidation.warning("Checking the connection to " + url + "...");
+            }
+        }
+        try {
+            return check.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return FormValidation.warning("Still checking the connection to " + url + "...");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FormValidation.warning("Interrupted while checking the connection to " + url);
+        } catch (ExecutionException e) {
+            return FormValidation.error(e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Passwords are kept out of the check keys, the digest identifies them without collisions.
+     */
+    private static String digest(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(digest.digest(StringUtils.defaultString(password).getBytes("UTF-8")));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM", e);
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is not supported by the JVM", e);
+        }
+    }
+
+    private void purgeExpired() {
+        for (Iterator<Check> iter = checks.values().iterator(); iter.hasNext(); ) {
+            if (iter.next().isExpired()) {
+                iter.remove();
+            }
+        }
+    }
+
+    private static class Check extends FutureTask<FormValidation> {
+        private volatile long completedAt;
+
+        private Check(final String url, final String username, final String password) {
+            super(new Callable<FormValidation>() {
+                public FormValidation call() throws Exception {
+                    ArtifactoryBuildInfoClient client;
+                    if (StringUtils.isNotBlank(username)) {
+                        client = new ArtifactoryBuildInfoClient(url, username, password, new NullLog());
+                    } else {
+                        client = new ArtifactoryBuildInfoClient(url, new NullLog());
+                    }
+                    try {
+                        client.verifyCompatibleArtifactoryVersion();
+                    } catch (UnsupportedOperationException uoe) {
+                        return FormValidation.warning(uoe.getMessage());
+                    } catch (Exception e) {
+                        return FormValidation.error(e.getMessage());
+                    } finally {
+                        client.shutdown();
+                    }
+                    return FormValidation.ok();
+                }
+            });
+        }
+
+        @Override
+        protected void done() {
+            completedAt = System.currentTimeMillis();
+        }
+
+        private boolean isExpired() {
+            long completed = completedAt;
+            return completed != 0 && System.currentTimeMillis() - completed > RESULT_TTL_MILLIS;
+        }
+    }
+}
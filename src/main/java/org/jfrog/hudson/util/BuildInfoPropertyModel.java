@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jfrog.hudson.util;
+
+import com.google.common.collect.MapMaker;
+import hudson.model.AbstractBuild;
+import hudson.model.Cause;
+import hudson.model.CauseAction;
+import hudson.tasks.LogRotator;
+import org.apache.commons.lang.StringUtils;
+import org.jfrog.build.ArtifactoryPluginUtils;
+import org.jfrog.build.api.BuildInfoConfigProperties;
+import org.jfrog.build.api.BuildInfoProperties;
+import org.jfrog.build.client.ClientProperties;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.BuildInfoAwareConfigurator;
+import org.jfrog.hudson.action.ActionableHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The build info properties common to all the build info extractors (Maven 3, Gradle and Ivy): build and agent
+ * details, the target server and credentials, license control, retention and deployment patterns. Computed once per
+ * build and rendered to whatever form the integration hands to its extractor (properties, init script, environment).
+ * Integration specific properties are added by each integration on top of these, including the build name (Maven 3
+ * uses the display name, Gradle and Ivy the project name) and the license violation recipients and scopes (Maven 3
+ * only sends them when the checks run).
+ */
+public class BuildInfoPropertyModel {
+
+    /**
+     * Models of running builds, per configurator. Hudson asks the build wrappers for their environment several times
+     * per build, the model is only computed on the first time. A build may run several integrations, each with its
+     * own settings, so the models are also keyed on the configurator. Weak keys so finished builds are not held.
+     */
+    private static final ConcurrentMap<AbstractBuild, ConcurrentMap<BuildInfoAwareConfigurator,
+            BuildInfoPropertyModel>> models = new MapMaker().weakKeys().makeMap();
+
+    private final String[] keys;
+    private final String[] values;
+
+    private BuildInfoPropertyModel(List<String> keys, List<String> values) {
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.values = values.toArray(new String[values.size()]);
+    }
+
+    /**
+     * Returns the properties model of the build and configurator, computing it on first use.
+     *
+     * @param build        The running build
+     * @param configurator The configurator of the integration
+     * @param server       The Artifactory server the build deploys to
+     * @param env          The build environment
+     */
+    public static BuildInfoPropertyModel forBuild(AbstractBuild build, BuildInfoAwareConfigurator configurator,
+            ArtifactoryServer server, Map<String, String> env) {
+        ConcurrentMap<BuildInfoAwareConfigurator, BuildInfoPropertyModel> buildModels = models.get(build);
+        if (buildModels == null) {
+            ConcurrentMap<BuildInfoAwareConfigurator, BuildInfoPropertyModel> newModels =
+                    new MapMaker().weakKeys().makeMap();
+            buildModels = models.putIfAbsent(build, newModels);
+            if (buildModels == null) {
+                buildModels = newModels;
+            }
+        }
+        BuildInfoPropertyModel model = buildModels.get(configurator);
+        if (model == null) {
+            Cause.UpstreamCause parent = ActionableHelper.getUpstreamCause(build);
+            model = create(configurator, server, env, build.getNumber(), build.getHudsonVersion(),
+                    getPrincipal(build), ActionableHelper.getBuildUrl(build),
+                    parent != null ? parent.getUpstreamProject() : null, parent != null ? parent.getUpstreamBuild() : 0,
+                    build.getProject().getLogRotator());
+            buildModels.put(configurator, model);
+        }
+        return model;
+    }
+
+    /**
+     * Creates the model from the values resolved from the build.
+     *
+     * @param principal  The user who started the build, or "auto"
+     * @param parentName Name of the upstream project, null if the build wasn't triggered by one
+     * @param logRotator The log rotator of the project, may be null
+     */
+    static BuildInfoPropertyModel create(BuildInfoAwareConfigurator configurator, ArtifactoryServer server,
+            Map<String, String> env, int buildNumber, String hudsonVersion, String principal, String buildUrl,
+            String parentName, int parentNumber, LogRotator logRotator) {
+        Collector collector = new Collector();
+        collector.put(BuildInfoProperties.PROP_BUILD_NUMBER, buildNumber + "");
+        collector.put(BuildInfoProperties.PROP_AGENT_NAME, "Jenkins");
+        collector.put(BuildInfoProperties.PROP_AGENT_VERSION, hudsonVersion);
+        collector.put(BuildInfoProperties.PROP_PRINCIPAL, principal);
+        collector.putIfNotBlank(BuildInfoProperties.PROP_BUILD_URL, buildUrl);
+        collector.putIfNotBlank(BuildInfoProperties.PROP_VCS_REVISION, env.get("SVN_REVISION"));
+        if (parentName != null) {
+            collector.put(BuildInfoProperties.PROP_PARENT_BUILD_NAME, parentName);
+            collector.put(BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, parentNumber + "");
+        }
+
+        collector.put(ClientProperties.PROP_CONTEXT_URL, server.getPreferredUrl());
+        collector.put(ClientProperties.PROP_TIMEOUT, Integer.toString(server.getTimeout()));
+        collector.putIfNotBlank(ClientProperties.PROP_PUBLISH_REPOKEY, configurator.getRepositoryKey());
+        Credentials preferredDeployer = CredentialResolver.getPreferredDeployer(configurator, server);
+        if (StringUtils.isNotBlank(preferredDeployer.getUsername())) {
+            collector.put(ClientProperties.PROP_PUBLISH_USERNAME, preferredDeployer.getUsername());
+            collector.put(ClientProperties.PROP_PUBLISH_PASSWORD,
+                    StringUtils.defaultString(preferredDeployer.getPassword()));
+        }
+
+        collector.put(BuildInfoProperties.PROP_LICENSE_CONTROL_RUN_CHECKS,
+                Boolean.toString(configurator.isRunChecks()));
+        collector.put(BuildInfoProperties.PROP_LICENSE_CONTROL_INCLUDE_PUBLISHED_ARTIFACTS,
+                Boolean.toString(configurator.isIncludePublishArtifacts()));
+        collector.put(BuildInfoProperties.PROP_LICENSE_CONTROL_AUTO_DISCOVER,
+                Boolean.toString(configurator.isLicenseAutoDiscovery()));
+
+        if (configurator.isDiscardOldBuilds() && logRotator != null) {
+            if (logRotator.getNumToKeep() > -1) {
+                collector.put(BuildInfoProperties.PROP_BUILD_RETENTION_DAYS, String.valueOf(logRotator.getNumToKeep()));
+            }
+            if (logRotator.getDaysToKeep() > -1) {
+                collector.put(BuildInfoProperties.PROP_BUILD_RETENTION_MINIMUM_DATE,
+                        String.valueOf(logRotator.getDaysToKeep()));
+            }
+        }
+
+        IncludesExcludes deploymentPatterns = configurator.getArtifactDeploymentPatterns();
+        if (deploymentPatterns != null) {
+            IncludeExcludeMatcher matcher = deploymentPatterns.getMatcher();
+            collector.putIfNotBlank(ClientProperties.PROP_PUBLISH_ARTIFACT_INCLUDE_PATTERNS,
+                    matcher.getIncludePatterns());
+            collector.putIfNotBlank(ClientProperties.PROP_PUBLISH_ARTIFACT_EXCLUDE_PATTERNS,
+                    matcher.getExcludePatterns());
+        }
+        collector.put(BuildInfoConfigProperties.PROP_INCLUDE_ENV_VARS,
+                Boolean.toString(configurator.isIncludeEnvVars()));
+
+        return new BuildInfoPropertyModel(collector.keys, collector.values);
+    }
+
+    /**
+     * @return The user who started the build, or "auto" if it was triggered
+     */
+    private static String getPrincipal(AbstractBuild build) {
+        String principal = "auto";
+        CauseAction action = ActionableHelper.getLatestAction(build, CauseAction.class);
+        if (action != null) {
+            for (Cause cause : action.getCauses()) {
+                if (cause instanceof Cause.UserCause) {
+                    principal = ((Cause.UserCause) cause).getUserName();
+                }
+            }
+        }
+        return principal;
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public void putAll(Map<String, String> target) {
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i], values[i]);
+        }
+    }
+
+    public void putAll(Properties target) {
+        for (int i = 0; i < keys.length; i++) {
+            target.put(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Appends the properties in the format of the Gradle init script.
+     */
+    public void appendTo(StringBuilder script) {
+        for (int i = 0; i < keys.length; i++) {
+            ArtifactoryPluginUtils.addProperty(script, keys[i], values[i]);
+        }
+    }
+
+    private static class Collector {
+        private final List<String> keys = new ArrayList<String>();
+        private final List<String> values = new ArrayList<String>();
+
+        private void put(String key, String value) {
+            keys.add(key);
+            values.add(value);
+        }
+
+        private void putIfNotBlank(String key, String value) {
+            if (StringUtils.isNotBlank(value)) {
+                put(key, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import com.google.common.io.Closeables;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.remoting.VirtualChannel;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the properties handed to the build info extractors to a per-build file in the node directory of the plugin,
+ * so workspaces don't collect stale properties files. The file should be deleted once the build is done.
+ */
+public abstract class BuildPropertiesFile {
+    private BuildPropertiesFile() {
+        // utility class
+    }
+
+    /**
+     * Writes the properties with a single call to the node the build runs on. The properties are gzipped on the
+     * channel, the file itself is a plain properties file as expected by the extractors.
+     *
+     * @param build      The running build
+     * @param suffix     Suffix of the file name, unique among the files written for the build
+     * @param properties The properties to write
+     * @return The written file
+     */
+    public static FilePath write(AbstractBuild build, String suffix, Properties properties)
+            throws IOException, InterruptedException {
+        String fileName = build.getProject().getFullName().replaceAll("[^\\w.-]", "_") + "-" + build.getNumber() +
+                suffix + ".properties";
+        FilePath propertiesFile = new FilePath(PluginDependencyHelper.getNodeCacheDir(build), "buildInfo/" + fileName);
+        write(propertiesFile, properties);
+        return propertiesFile;
+    }
+
+    static void write(FilePath propertiesFile, Properties properties) throws IOException, InterruptedException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new GZIPOutputStream(bytes);
+        try {
+            properties.store(out, null);
+        } finally {
+            out.close();
+        }
+        propertiesFile.act(new PropertiesFileWriter(bytes.toByteArray()));
+    }
+
+    /**
+     * Writes the gzipped properties sent from the master. Written to a temp file which is then renamed so the extractor
+     * never reads a partial file.
+     */
+    private static class PropertiesFileWriter implements FilePath.FileCallable<Void> {
+        private final byte[] compressedProperties;
+
+        private PropertiesFileWriter(byte[] compressedProperties) {
+            this.compressedProperties = compressedProperties;
+        }
+
+        public Void invoke(File file, VirtualChannel channel) throws IOException {
+            File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Failed to create " + dir);
+            }
+            File tempFile = File.createTempFile("buildInfo", ".tmp", dir);
+            try {
+                InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressedProperties));
+                OutputStream out = new FileOutputStream(tempFile);
+                try {
+                    IOUtils.copy(in, out);
+                } finally {
+                    Closeables.closeQuietly(in);
+                    out.close();
+                }
+                if (!tempFile.renameTo(file)) {
+                    // windows won't rename over an existing file
+                    file.delete();
+                    if (!tempFile.renameTo(file)) {
+                        throw new IOException("Failed to rename " + tempFile + " to " + file);
+                    }
+                }
+            } finally {
+                tempFile.delete();
+            }
+            return null;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Include/exclude Ant-style patterns compiled once per job configuration. Each pattern is translated to a regular
+ * expression guarded by its literal prefix (and matched by plain string comparison when it has no wildcards at all),
+ * and decisions are remembered per path since the same artifact paths are published by build after build.
+ * <p/>
+ * Instances are immutable and thread safe. Use {@link IncludesExcludes#getMatcher()} to get the shared instance of a
+ * configuration.
+ */
+public class IncludeExcludeMatcher {
+
+    public static final IncludeExcludeMatcher EMPTY = new IncludeExcludeMatcher(null, null);
+
+    /**
+     * Upper bound of remembered decisions, paths beyond it are still matched but not cached.
+     */
+    private static final int MAX_CACHED_DECISIONS = 4096;
+
+    private final String includePatterns;
+    private final String excludePatterns;
+    private final CompiledPattern[] includes;
+    private final CompiledPattern[] excludes;
+    private final ConcurrentMap<String, Boolean> decisions = new ConcurrentHashMap<String, Boolean>();
+
+    /**
+     * @param includePatterns Comma separated include patterns, may be null
+     * @param excludePatterns Comma separated exclude patterns, may be null
+     */
+    public IncludeExcludeMatcher(String includePatterns, String excludePatterns) {
+        Set<String> includeSet = split(includePatterns);
+        Set<String> excludeSet = split(excludePatterns);
+        this.includePatterns = includeSet.isEmpty() ? null : StringUtils.join(includeSet, ",");
+        this.excludePatterns = excludeSet.isEmpty() ? null : StringUtils.join(excludeSet, ",");
+        this.includes = compile(includeSet);
+        this.excludes = compile(excludeSet);
+    }
+
+    /**
+     * Same semantics as {@link org.jfrog.build.client.PatternMatcher#pathConflicts}: a path is excluded if include
+     * patterns are defined and none of them matches, or if any of the exclude patterns matches.
+     *
+     * @param path Artifact path relative to the repository root
+     * @return True if the path should not be published
+     */
+    public boolean isExcluded(String path) {
+        if (includes.length == 0 && excludes.length == 0) {
+            return false;
+        }
+        Boolean decision = decisions.get(path);
+        if (decision == null) {
+            decision = (includes.length > 0 && !matchesAny(includes, path)) || matchesAny(excludes, path);
+            if (decisions.size() < MAX_CACHED_DECISIONS) {
+                decisions.put(path, decision);
+            }
+        }
+        return decision;
+    }
+
+    /**
+     * @return The normalized (trimmed, de-duplicated and comma separated) include patterns, null if there are none.
+     *         This is the form handed over to the build info extractors.
+     */
+    public String getIncludePatterns() {
+        return includePatterns;
+    }
+
+    /**
+     * @return The normalized (trimmed, de-duplicated and comma separated) exclude patterns, null if there are none.
+     *         This is the form handed over to the build info extractors.
+     */
+    public String getExcludePatterns() {
+        return excludePatterns;
+    }
+
+    private static boolean matchesAny(CompiledPattern[] patterns, String path) {
+        for (CompiledPattern pattern : patterns) {
+            if (pattern.matches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> split(String patterns) {
+        Set<String> result = new LinkedHashSet<String>();
+        if (StringUtils.isNotBlank(patterns)) {
+            // split on commas only, like IncludeExcludePatterns, so a pattern may contain a space
+            for (String pattern : StringUtils.split(patterns, ',')) {
+                pattern = pattern.trim();
+                if (pattern.length() > 0) {
+                    result.add(pattern);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static CompiledPattern[] compile(Set<String> patterns) {
+        List<CompiledPattern> compiled = new ArrayList<CompiledPattern>(patterns.size());
+        for (String pattern : patterns) {
+            compiled.add(new CompiledPattern(pattern));
+        }
+        return compiled.toArray(new CompiledPattern[compiled.size()]);
+    }
+
+    /**
+     * A single Ant-style pattern: <tt>?</tt> matches one character, <tt>*</tt> matches zero or more characters within
+     * a path segment, <tt>**</tt> matches zero or more path segments and a trailing <tt>/</tt> is treated as
+     * <tt>/**</tt>.
+     */
+    private static final class CompiledPattern {
+        private final String literalPrefix;
+        /**
+         * Null if the pattern has no wildcards and is matched by the literal prefix alone
+         */
+        private final Pattern regex;
+
+        private CompiledPattern(String antPattern) {
+            String pattern = antPattern.replace('\\', '/');
+            if (pattern.endsWith("/")) {
+                pattern = pattern + "**";
+            }
+            int firstWildcard = StringUtils.indexOfAny(pattern, "*?");
+            if (firstWildcard < 0) {
+                literalPrefix = pattern;
+                regex = null;
+            } else {
+                // without the trailing slash so "dir/**" also guards the directory path itself
+                literalPrefix = StringUtils.removeEnd(pattern.substring(0, firstWildcard), "/");
+                regex = Pattern.compile(toRegex(pattern));
+            }
+        }
+
+        private boolean matches(String path) {
+            if (regex == null) {
+                return literalPrefix.equals(path);
+            }
+            return path.startsWith(literalPrefix) && regex.matcher(path).matches();
+        }
+
+        private static String toRegex(String pattern) {
+            StringBuilder regex = new StringBuilder(pattern.length() + 16);
+            int length = pattern.length();
+            for (int i = 0; i < length; i++) {
+                char c = pattern.charAt(i);
+                if (c == '*') {
+                    if (i + 1 < length && pattern.charAt(i + 1) == '*') {
+                        boolean segmentStart = i == 0 || pattern.charAt(i - 1) == '/';
+                        if (segmentStart && i + 2 < length && pattern.charAt(i + 2) == '/') {
+                            // "**/" - zero or more leading directories
+                            regex.append("(?:.*/)?");
+                            i += 2;
+                        } else if (segmentStart && i + 2 == length && i > 0) {
+                            // trailing "/**" - the directory itself or anything below it
+                            regex.setLength(regex.length() - 1);
+                            regex.append("(?:/.*)?");
+                            i += 1;
+                        } else {
+                            regex.append(".*");
+                            i += 1;
+                        }
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                } else if (c == '?') {
+                    regex.append("[^/]");
+                } else if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+                    regex.append('\\').append(c);
+                } else {
+                    regex.append(c);
+                }
+            }
+            return regex.toString();
+        }
+    }
+}
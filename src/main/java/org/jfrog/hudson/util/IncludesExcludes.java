@@ -10,6 +10,10 @@ import org.kohsuke.stapler.DataBoundConstructor;
 public class IncludesExcludes {
     private final String includePatterns;
     private final String excludePatterns;
+    /**
+     * The compiled patterns, created on first use and shared by every build of the job configuration
+     */
+    private transient volatile IncludeExcludeMatcher matcher;
 
     @DataBoundConstructor
     public IncludesExcludes(String includePatterns, String excludePatterns) {
@@ -24,4 +28,16 @@ public class IncludesExcludes {
     public String getExcludePatterns() {
         return excludePatterns;
     }
+
+    /**
+     * @return The compiled include and exclude patterns
+     */
+    public IncludeExcludeMatcher getMatcher() {
+        IncludeExcludeMatcher result = matcher;
+        if (result == null) {
+            result = new IncludeExcludeMatcher(includePatterns, excludePatterns);
+            matcher = result;
+        }
+        return result;
+    }
 }
@@ -4,6 +4,7 @@ import hudson.FilePath;
 import hudson.model.AbstractBuild;
 import hudson.model.Computer;
 import hudson.model.Hudson;
+import hudson.model.Node;
 import hudson.slaves.SlaveComputer;
 import org.apache.commons.lang.StringUtils;
 
@@ -15,6 +16,16 @@ import java.io.IOException;
  */
 public class PluginDependencyHelper {
 
+    /**
+     * Name of the marker file written once all the dependencies were transferred
+     */
+    private static final String TRANSFERRED_MARK = "ok";
+
+    /**
+     * Returns the directory holding the plugin dependencies on the node the build runs on. On slaves the
+     * dependencies are copied once per node and plugin version, to a directory under the node root shared by all the
+     * builds of the node.
+     */
     public static FilePath getActualDependencyDirectory(AbstractBuild build, File localDependencyFile)
             throws IOException, InterruptedException {
 
@@ -23,34 +34,66 @@ public class PluginDependencyHelper {
             return new FilePath(localDependencyDir);
         }
 
-        String pluginVersion = Hudson.getInstance().getPluginManager().getPlugin("artifactory").getVersion();
-        if (pluginVersion.contains(" ")) {
-            //Trim the plugin version in case we're working on a snapshot version (contains illegal chars)
-            pluginVersion = StringUtils.split(pluginVersion, " ")[0];
-        }
-        FilePath remoteDependencyDir = new FilePath(build.getWorkspace(), pluginVersion);
-
-        if (!remoteDependencyDir.exists()) {
-            remoteDependencyDir.mkdirs();
-        }
+        String pluginVersion = getPluginVersion();
+        FilePath remoteDependencyDir = new FilePath(getNodeCacheDir(build), pluginVersion);
 
         //Check if the dependencies have already been transferred successfully
-        FilePath remoteDependencyMark = new FilePath(remoteDependencyDir, "ok");
-        if (!remoteDependencyMark.exists()) {
-
-            File[] localDependencies = localDependencyDir.listFiles();
-            for (File localDependency : localDependencies) {
-                FilePath remoteDependencyFilePath = new FilePath(remoteDependencyDir, localDependency.getName());
-                if (!remoteDependencyFilePath.exists()) {
-                    FilePath localDependencyFilePath = new FilePath(localDependency);
-                    localDependencyFilePath.copyTo(remoteDependencyFilePath);
+        if (!new FilePath(remoteDependencyDir, TRANSFERRED_MARK).exists()) {
+            // transfer to a private directory which is then moved into place, so concurrent builds on the node never
+            // see (or overwrite) a partially transferred directory
+            FilePath parent = remoteDependencyDir.getParent();
+            parent.mkdirs();
+            FilePath tempDir = parent.createTempDir(pluginVersion, "tmp");
+            try {
+                new FilePath(localDependencyDir).copyRecursiveTo(tempDir);
+                //Mark that all the dependencies have been transferred successfully for future references
+                new FilePath(tempDir, TRANSFERRED_MARK).touch(System.currentTimeMillis());
+                // the target is never deleted: it only ever appears by a complete copy being renamed into place, so
+                // if another build of the node won the race its copy is used and only ours is discarded
+                try {
+                    tempDir.renameTo(remoteDependencyDir);
+                } catch (IOException e) {
+                    // the rename fails if the target exists
+                }
+                if (!new FilePath(remoteDependencyDir, TRANSFERRED_MARK).exists()) {
+                    throw new IOException("Failed to move the plugin dependencies to " + remoteDependencyDir);
+                }
+            } finally {
+                if (tempDir.exists()) {
+                    tempDir.deleteRecursive();
                 }
             }
-
-            //Mark that all the dependencies have been transferred successfully for future references
-            remoteDependencyMark.touch(System.currentTimeMillis());
         }
 
         return remoteDependencyDir;
     }
+
+    /**
+     * @return Directory under the root of the node the build runs on, shared by all the builds of the node
+     */
+    public static FilePath getNodeCacheDir(AbstractBuild build) {
+        FilePath nodeCacheDir = getNodeCacheDir(build.getBuiltOn());
+        if (nodeCacheDir == null) {
+            // node is offline, fall back to the workspace
+            return build.getWorkspace();
+        }
+        return nodeCacheDir;
+    }
+
+    /**
+     * @return Directory under the root of the node, shared by all the builds of the node. Null if the node is offline
+     */
+    public static FilePath getNodeCacheDir(Node node) {
+        FilePath nodeRoot = node.getRootPath();
+        return nodeRoot != null ? new FilePath(nodeRoot, "artifactory-plugin") : null;
+    }
+
+    public static String getPluginVersion() {
+        String pluginVersion = Hudson.getInstance().getPluginManager().getPlugin("artifactory").getVersion();
+        if (pluginVersion.contains(" ")) {
+            //Trim the plugin version in case we're working on a snapshot version (contains illegal chars)
+            pluginVersion = StringUtils.split(pluginVersion, " ")[0];
+        }
+        return pluginVersion;
+    }
 }
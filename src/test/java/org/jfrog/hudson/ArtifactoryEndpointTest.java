@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import org.junit.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the circuit breaker of {@link ArtifactoryEndpoint} and the read order of {@link ArtifactoryServer}.
+ */
+public class ArtifactoryEndpointTest {
+
+    private static final long COOL_DOWN = TimeUnit.SECONDS.toMillis(30);
+
+    @Test
+    public void opensAfterThreeConsecutiveFailures() {
+        TestEndpoint endpoint = new TestEndpoint();
+        endpoint.recordFailure();
+        endpoint.recordFailure();
+        assertFalse(endpoint.isCircuitOpen());
+        assertTrue(endpoint.tryAcquireProbe());
+
+        endpoint.recordFailure();
+        assertTrue(endpoint.isCircuitOpen());
+        assertFalse(endpoint.isAvailable());
+        assertFalse(endpoint.tryAcquireProbe());
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        TestEndpoint endpoint = new TestEndpoint();
+        endpoint.recordFailure();
+        endpoint.recordFailure();
+        endpoint.recordSuccess(10);
+        endpoint.recordFailure();
+        endpoint.recordFailure();
+        assertFalse(endpoint.isCircuitOpen());
+    }
+
+    @Test
+    public void singleProbeAfterCoolDown() {
+        TestEndpoint endpoint = openEndpoint();
+        endpoint.now += COOL_DOWN - 1;
+        assertFalse(endpoint.isAvailable());
+        assertFalse(endpoint.tryAcquireProbe());
+
+        endpoint.now += 1;
+        assertTrue(endpoint.isAvailable());
+        assertTrue("First caller after the cool-down probes", endpoint.tryAcquireProbe());
+        assertFalse("Only one probe per cool-down", endpoint.tryAcquireProbe());
+        assertFalse(endpoint.isAvailable());
+        assertTrue(endpoint.isCircuitOpen());
+    }
+
+    @Test
+    public void successfulProbeClosesTheCircuit() {
+        TestEndpoint endpoint = openEndpoint();
+        endpoint.now += COOL_DOWN;
+        assertTrue(endpoint.tryAcquireProbe());
+        endpoint.recordSuccess(20);
+        assertFalse(endpoint.isCircuitOpen());
+        assertTrue(endpoint.tryAcquireProbe());
+        assertTrue(endpoint.tryAcquireProbe());
+    }
+
+    @Test
+    public void failedProbeReopensTheCircuit() {
+        TestEndpoint endpoint = openEndpoint();
+        endpoint.now += COOL_DOWN;
+        assertTrue(endpoint.tryAcquireProbe());
+        endpoint.recordFailure();
+        assertTrue(endpoint.isCircuitOpen());
+        assertFalse(endpoint.tryAcquireProbe());
+        endpoint.now += COOL_DOWN;
+        assertTrue(endpoint.tryAcquireProbe());
+    }
+
+    @Test
+    public void latencyMovingAverage() {
+        TestEndpoint endpoint = new TestEndpoint();
+        assertEquals(0, endpoint.getAverageLatencyMillis());
+        endpoint.recordSuccess(100);
+        assertEquals(100, endpoint.getAverageLatencyMillis());
+        endpoint.recordSuccess(500);
+        assertEquals(200, endpoint.getAverageLatencyMillis());
+    }
+
+    @Test
+    public void connectionErrors() {
+        assertTrue(ArtifactoryEndpoint.isConnectionError(new ConnectException()));
+        assertTrue(ArtifactoryEndpoint.isConnectionError(new NoRouteToHostException()));
+        assertTrue(ArtifactoryEndpoint.isConnectionError(new UnknownHostException()));
+        assertTrue(ArtifactoryEndpoint.isConnectionError(new SocketTimeoutException()));
+        assertFalse(ArtifactoryEndpoint.isConnectionError(new IOException("Unauthorized")));
+        assertFalse(ArtifactoryEndpoint.isConnectionError(new FileNotFoundException()));
+    }
+
+    @Test
+    public void readEndpointsPutClosedCircuitsFirstByLatency() {
+        String base = "http://read-order-" + System.nanoTime();
+        ArtifactoryServer server = new ArtifactoryServer(base + "-a", base + "-b " + base + "-c, " + base + "-d",
+                null, null, 0, false);
+        ArtifactoryEndpoint a = ArtifactoryEndpoint.forUrl(base + "-a");
+        ArtifactoryEndpoint b = ArtifactoryEndpoint.forUrl(base + "-b");
+        ArtifactoryEndpoint c = ArtifactoryEndpoint.forUrl(base + "-c");
+        ArtifactoryEndpoint d = ArtifactoryEndpoint.forUrl(base + "-d");
+        a.recordSuccess(300);
+        for (int i = 0; i < 3; i++) {
+            b.recordFailure();
+        }
+        c.recordSuccess(50);
+        d.recordSuccess(100);
+
+        List<ArtifactoryEndpoint> endpoints = server.getReadEndpoints();
+        assertEquals(4, endpoints.size());
+        assertSame(c, endpoints.get(0));
+        assertSame(d, endpoints.get(1));
+        assertSame(a, endpoints.get(2));
+        assertSame("Open circuits go last", b, endpoints.get(3));
+
+        List<ArtifactoryEndpoint> deployment = server.getDeploymentEndpoints();
+        assertSame(a, deployment.get(0));
+        assertSame(c, deployment.get(1));
+        assertSame(d, deployment.get(2));
+        assertSame(b, deployment.get(3));
+        assertEquals(base + "-a", server.getPreferredUrl());
+    }
+
+    private TestEndpoint openEndpoint() {
+        TestEndpoint endpoint = new TestEndpoint();
+        for (int i = 0; i < 3; i++) {
+            endpoint.recordFailure();
+        }
+        assertTrue(endpoint.isCircuitOpen());
+        return endpoint;
+    }
+
+    private static class TestEndpoint extends ArtifactoryEndpoint {
+        private long now = 1000000L;
+
+        TestEndpoint() {
+            super("http://localhost:8081/artifactory");
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.builder.DependencyBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the change sections computed by {@link BuildInfoDiffAction}.
+ */
+public class BuildInfoDiffActionTest {
+
+    @Test
+    public void sameBuildInfo() {
+        BuildInfoDiffAction action = new BuildInfoDiffAction(1, createBuild("1.0", "aaa", "ddd"),
+                createBuild("1.0", "aaa", "ddd"));
+        assertTrue(action.isEmpty());
+        assertEquals(1, action.getPreviousBuildNumber());
+    }
+
+    @Test
+    public void versionBumpIsAVersionChange() {
+        BuildInfoDiffAction action = new BuildInfoDiffAction(1, createBuild("1.0", "aaa", "ddd"),
+                createBuild("1.1", "aaa", "ddd"));
+        Map<String, List<String>> sections = sections(action);
+        assertEquals(1, sections.size());
+        assertEquals(Arrays.asList("org.example:core 1.0 -> 1.1"), sections.get("Changed module versions"));
+    }
+
+    @Test
+    public void changedChecksums() {
+        BuildInfoDiffAction action = new BuildInfoDiffAction(1, createBuild("1.0", "aaa", "ddd"),
+                createBuild("1.1", "bbb", "eee"));
+        Map<String, List<String>> sections = sections(action);
+        assertEquals(Arrays.asList("org.example:core core-1.1.jar"), sections.get("Changed artifacts"));
+        assertEquals(Arrays.asList("org.example:core commons-lang:commons-lang:jar:2.4"),
+                sections.get("Changed dependencies"));
+        assertFalse(sections.containsKey("Added artifacts"));
+        assertFalse(sections.containsKey("Removed artifacts"));
+    }
+
+    @Test
+    public void addedAndRemoved() {
+        Build previous = new BuildInfoBuilder("project").number("1")
+                .addModule(new ModuleBuilder().id("org.example:core:1.0")
+                        .addArtifact(new ArtifactBuilder("core-1.0.jar").md5("aaa").build())
+                        .addArtifact(new ArtifactBuilder("core-1.0-sources.jar").md5("bbb").build())
+                        .addDependency(new DependencyBuilder().id("junit:junit:jar:4.8.1").md5("ccc").build())
+                        .build())
+                .addModule(new ModuleBuilder().id("org.example:old:1.0").build()).build();
+        Build current = new BuildInfoBuilder("project").number("2")
+                .addModule(new ModuleBuilder().id("org.example:core:1.0")
+                        .addArtifact(new ArtifactBuilder("core-1.0.jar").md5("aaa").build())
+                        .addArtifact(new ArtifactBuilder("core-1.0-javadoc.jar").md5("ddd").build())
+                        .addDependency(new DependencyBuilder().id("junit:junit:jar:4.8.1").md5("ccc").build())
+                        .addDependency(new DependencyBuilder().id("log4j:log4j:jar:1.2.16").md5("eee").build())
+                        .build())
+                .addModule(new ModuleBuilder().id("org.example:new:1.0").build()).build();
+
+        Map<String, List<String>> sections = sections(new BuildInfoDiffAction(1, previous, current));
+        assertEquals(Arrays.asList("org.example:new"), sections.get("Added modules"));
+        assertEquals(Arrays.asList("org.example:old"), sections.get("Removed modules"));
+        assertEquals(Arrays.asList("org.example:core core-1.0-javadoc.jar"), sections.get("Added artifacts"));
+        assertEquals(Arrays.asList("org.example:core core-1.0-sources.jar"), sections.get("Removed artifacts"));
+        assertEquals(Arrays.asList("org.example:core log4j:log4j:jar:1.2.16"), sections.get("Added dependencies"));
+        assertFalse(sections.containsKey("Removed dependencies"));
+        assertFalse(sections.containsKey("Changed module versions"));
+    }
+
+    @Test
+    public void sectionsAreTruncated() {
+        ModuleBuilder module = new ModuleBuilder().id("org.example:core:1.0");
+        for (int i = 0; i < 150; i++) {
+            module.addDependency(new DependencyBuilder().id("org.example:lib-" + (1000 + i) + ":jar:1.0").md5("a")
+                    .build());
+        }
+        Build previous = new BuildInfoBuilder("project").number("1")
+                .addModule(new ModuleBuilder().id("org.example:core:1.0").build()).build();
+        Build current = new BuildInfoBuilder("project").number("2").addModule(module.build()).build();
+
+        BuildInfoDiffAction.Section section = new BuildInfoDiffAction(1, previous, current).getSections().get(0);
+        assertEquals("Added dependencies", section.getTitle());
+        assertEquals(150, section.getTotal());
+        assertEquals(BuildInfoDiffAction.MAX_CHANGES_PER_SECTION, section.getChanges().size());
+        assertTrue(section.isTruncated());
+        assertEquals("org.example:core org.example:lib-1000:jar:1.0", section.getChanges().get(0));
+    }
+
+    private Build createBuild(String version, String artifactMd5, String dependencyMd5) {
+        return new BuildInfoBuilder("project").number("1")
+                .addModule(new ModuleBuilder().id("org.example:core:" + version)
+                        .addArtifact(new ArtifactBuilder("core-" + version + ".jar").md5(artifactMd5).build())
+                        .addDependency(new DependencyBuilder().id("commons-lang:commons-lang:jar:2.4")
+                                .md5(dependencyMd5).build())
+                        .build()).build();
+    }
+
+    private Map<String, List<String>> sections(BuildInfoDiffAction action) {
+        Map<String, List<String>> sections = new HashMap<String, List<String>>();
+        for (BuildInfoDiffAction.Section section : action.getSections()) {
+            assertFalse(section.isTruncated());
+            sections.put(section.getTitle(), section.getChanges());
+        }
+        return sections;
+    }
+}
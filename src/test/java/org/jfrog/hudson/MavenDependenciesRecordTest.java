@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import hudson.util.XStream2;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that {@link MavenDependenciesRecord} stores the dependencies once, in its graph, and still loads records
+ * written by version 1.4.3 and below.
+ */
+public class MavenDependenciesRecordTest {
+
+    private static final String OLD_RECORD = "<org.jfrog.hudson.MavenDependenciesRecord>\n" +
+            "  <dependencies>\n" +
+            "    <org.jfrog.hudson.MavenDependency>\n" +
+            "      <id>commons-lang:commons-lang:jar:2.4</id>\n" +
+            "      <groupId>commons-lang</groupId>\n" +
+            "      <artifactId>commons-lang</artifactId>\n" +
+            "      <version>2.4</version>\n" +
+            "      <type>jar</type>\n" +
+            "      <scope>compile</scope>\n" +
+            "      <fileName>commons-lang-2.4.jar</fileName>\n" +
+            "    </org.jfrog.hudson.MavenDependency>\n" +
+            "  </dependencies>\n" +
+            "</org.jfrog.hudson.MavenDependenciesRecord>";
+
+    @Test
+    public void graphHoldsTheDependenciesAndTheirParents() {
+        Set<MavenDependency> dependencies = createDependencies(3);
+        Map<String, String> parents = new HashMap<String, String>();
+        parents.put(id(1), id(0));
+        parents.put(id(2), "org.example:not-resolved:jar:1.0");
+        MavenDependencyGraph graph = new MavenDependencyGraph(dependencies, parents);
+
+        assertEquals(3, graph.size());
+        assertEquals(dependencies, graph.getDependencies());
+        assertNull(graph.getParent(id(0)));
+        assertEquals(id(0), graph.getParent(id(1)));
+        assertNull("Parents outside the graph are dropped", graph.getParent(id(2)));
+        assertNull(graph.getParent("org.example:unknown:jar:1.0"));
+    }
+
+    @Test
+    public void dependenciesAreStoredOnce() {
+        Set<MavenDependency> dependencies = createDependencies(200);
+        Map<String, String> parents = new HashMap<String, String>();
+        for (int i = 1; i < 200; i++) {
+            parents.put(id(i), id(i / 2));
+        }
+        MavenDependenciesRecord record =
+                new MavenDependenciesRecord(null, new MavenDependencyGraph(dependencies, parents));
+        XStream2 xstream = new XStream2();
+        String recordXml = xstream.toXML(record);
+        // without the indentation, which grows with the nesting depth
+        int recordSize = recordXml.replaceAll(">\\s+<", "><").length();
+        int dependenciesSize = xstream.toXML(dependencies).replaceAll(">\\s+<", "><").length();
+
+        assertEquals(1, StringUtils.countMatches(recordXml, "<fileName>artifact-7-1.0.jar</fileName>"));
+        // the graph adds one int per dependency on top of the dependencies themselves
+        assertTrue("Record of " + recordSize + " chars for " + dependenciesSize + " chars of dependencies",
+                recordSize < dependenciesSize * 1.1);
+
+        MavenDependenciesRecord loaded = (MavenDependenciesRecord) xstream.fromXML(recordXml);
+        assertEquals(dependencies, loaded.getDependencies());
+        assertEquals(id(3), loaded.getDependencyGraph().getParent(id(7)));
+        assertNull(loaded.getDependencyGraph().getParent(id(0)));
+    }
+
+    @Test
+    public void oldRecord() {
+        MavenDependenciesRecord record = (MavenDependenciesRecord) new XStream2().fromXML(OLD_RECORD);
+        assertEquals(1, record.getDependencies().size());
+        MavenDependency dependency = record.getDependencies().iterator().next();
+        assertEquals("commons-lang:commons-lang:jar:2.4", dependency.getId());
+        assertEquals(1, record.getDependencyGraph().size());
+        assertNull(record.getDependencyGraph().getParent(dependency.getId()));
+        assertTrue("Converted records are written in the new format",
+                !new XStream2().toXML(record).contains("<dependencies>"));
+    }
+
+    private Set<MavenDependency> createDependencies(int count) {
+        Set<MavenDependency> dependencies = new LinkedHashSet<MavenDependency>();
+        for (int i = 0; i < count; i++) {
+            dependencies.add(new MavenDependency("org.example", "artifact-" + i, "1.0", null, "jar", null,
+                    "compile", "artifact-" + i + "-1.0.jar"));
+        }
+        return dependencies;
+    }
+
+    private String id(int index) {
+        return "org.example:artifact-" + index + ":jar:1.0";
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson;
+
+import hudson.util.XStream2;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that {@link MavenDependency} records written by version 1.4.3 and below still load, and that new records
+ * survive both XStream (build records) and java serialization (remoting).
+ */
+public class MavenDependencyTest {
+
+    /**
+     * A timestamped snapshot dependency as recorded in build.xml by version 1.4.3
+     */
+    private static final String OLD_SNAPSHOT_RECORD = "<org.jfrog.hudson.MavenDependency>\n" +
+            "  <id>org.jfrog:build-info:jar:tests:1.1-SNAPSHOT</id>\n" +
+            "  <groupId>org.jfrog</groupId>\n" +
+            "  <artifactId>build-info</artifactId>\n" +
+            "  <version>1.1-20100101.120000-3</version>\n" +
+            "  <type>jar</type>\n" +
+            "  <classifier>tests</classifier>\n" +
+            "  <scope>test</scope>\n" +
+            "  <fileName>build-info-1.1-20100101.120000-3-tests.jar</fileName>\n" +
+            "</org.jfrog.hudson.MavenDependency>";
+
+    /**
+     * A release dependency without a classifier as recorded in build.xml by version 1.4.3
+     */
+    private static final String OLD_RELEASE_RECORD = "<org.jfrog.hudson.MavenDependency>\n" +
+            "  <id>commons-lang:commons-lang:jar:2.4</id>\n" +
+            "  <groupId>commons-lang</groupId>\n" +
+            "  <artifactId>commons-lang</artifactId>\n" +
+            "  <version>2.4</version>\n" +
+            "  <type>jar</type>\n" +
+            "  <scope>compile</scope>\n" +
+            "  <fileName>commons-lang-2.4.jar</fileName>\n" +
+            "</org.jfrog.hudson.MavenDependency>";
+
+    @Test
+    public void oldSnapshotRecord() {
+        MavenDependency dependency = (MavenDependency) new XStream2().fromXML(OLD_SNAPSHOT_RECORD);
+        assertEquals("org.jfrog", dependency.getGroupId());
+        assertEquals("build-info", dependency.getArtifactId());
+        assertEquals("1.1-20100101.120000-3", dependency.getVersion());
+        assertEquals("1.1-SNAPSHOT", dependency.getBaseVersion());
+        assertEquals("jar", dependency.getType());
+        assertEquals("tests", dependency.getClassifier());
+        assertEquals("test", dependency.getScope());
+        assertEquals("build-info-1.1-20100101.120000-3-tests.jar", dependency.getFileName());
+        assertEquals("org.jfrog:build-info:jar:tests:1.1-SNAPSHOT", dependency.getId());
+        assertEquals(new MavenDependency("org.jfrog", "build-info", "1.1-20100101.120000-3", "1.1-SNAPSHOT", "jar",
+                "tests", "test", "build-info-1.1-20100101.120000-3-tests.jar"), dependency);
+    }
+
+    @Test
+    public void oldReleaseRecord() {
+        MavenDependency dependency = (MavenDependency) new XStream2().fromXML(OLD_RELEASE_RECORD);
+        assertEquals("commons-lang", dependency.getGroupId());
+        assertEquals("commons-lang", dependency.getArtifactId());
+        assertEquals("2.4", dependency.getVersion());
+        assertEquals("2.4", dependency.getBaseVersion());
+        assertEquals("jar", dependency.getType());
+        assertNull(dependency.getClassifier());
+        assertEquals("compile", dependency.getScope());
+        assertEquals("commons-lang:commons-lang:jar:2.4", dependency.getId());
+        // the coordinates are interned
+        assertSame("commons-lang", dependency.getGroupId());
+    }
+
+    @Test
+    public void newRecordXStreamRoundTrip() {
+        MavenDependency dependency = new MavenDependency("org.jfrog", "build-info", "1.1-20100101.120000-3",
+                "1.1-SNAPSHOT", "jar", null, null, "build-info-1.1-20100101.120000-3.jar");
+        XStream2 xstream = new XStream2();
+        String xml = xstream.toXML(dependency);
+        assertFalse("The id should not be stored: " + xml, xml.contains("<id>"));
+
+        MavenDependency loaded = (MavenDependency) xstream.fromXML(xml);
+        assertEquals(dependency, loaded);
+        assertEquals(dependency.hashCode(), loaded.hashCode());
+        assertEquals("1.1-20100101.120000-3", loaded.getVersion());
+        assertEquals("1.1-SNAPSHOT", loaded.getBaseVersion());
+        assertNull(loaded.getClassifier());
+        assertNull(loaded.getScope());
+    }
+
+    @Test
+    public void javaSerializationRoundTrip() throws Exception {
+        MavenDependency dependency = new MavenDependency("org.jfrog", "hudson", "1.0", null, "jar", "sources",
+                "compile", "hudson-1.0-sources.jar");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(dependency);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        MavenDependency loaded = (MavenDependency) in.readObject();
+        assertEquals(dependency, loaded);
+        assertEquals(dependency.hashCode(), loaded.hashCode());
+        assertEquals("org.jfrog:hudson:jar:sources:1.0", loaded.getId());
+        assertEquals("compile", loaded.getScope());
+        assertEquals("hudson-1.0-sources.jar", loaded.getFileName());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.gradle;
+
+import hudson.ProxyConfiguration;
+import org.jfrog.build.ArtifactoryPluginUtils;
+import org.jfrog.build.client.ClientProperties;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the proxy block of the Gradle init script.
+ */
+public class GradleInitScriptWriterTest {
+
+    @Test
+    public void proxyPortUsesThePortKey() {
+        StringBuilder script = new StringBuilder();
+        GradleInitScriptWriter.addProxyProperties(script, new ProxyConfiguration("proxy.example.com", 3128));
+
+        // the port used to be written under the host key
+        StringBuilder expected = new StringBuilder();
+        ArtifactoryPluginUtils.addProperty(expected, ClientProperties.PROP_PROXY_HOST, "proxy.example.com");
+        ArtifactoryPluginUtils.addProperty(expected, ClientProperties.PROP_PROXY_PORT, "3128");
+        ArtifactoryPluginUtils.addProperty(expected, ClientProperties.PROP_PROXY_USERNAME, null);
+        ArtifactoryPluginUtils.addProperty(expected, ClientProperties.PROP_PROXY_PASSWORD, null);
+        assertEquals(expected.toString(), script.toString());
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.ivy;
+
+import org.jfrog.build.api.BuildInfoProperties;
+import org.jfrog.hudson.util.IncludeExcludeMatcher;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the environment captured in the side file of the Ivy build info extractor.
+ */
+public class ArtifactoryIvyConfiguratorTest {
+
+    @Test
+    public void allVariablesWithoutPatterns() {
+        Properties properties = ArtifactoryIvyConfigurator.getEnvVarsProperties(createEnv(),
+                IncludeExcludeMatcher.EMPTY);
+        assertEquals(4, properties.size());
+        assertEquals("/usr/bin", properties.getProperty(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + "PATH"));
+        assertEquals("12", properties.getProperty(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + "BUILD_NUMBER"));
+    }
+
+    @Test
+    public void filteredVariables() {
+        Properties properties = ArtifactoryIvyConfigurator.getEnvVarsProperties(createEnv(),
+                new IncludeExcludeMatcher("BUILD_*, SVN_*", "*_SECRET"));
+        Properties expected = new Properties();
+        expected.setProperty(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + "BUILD_NUMBER", "12");
+        expected.setProperty(BuildInfoProperties.BUILD_INFO_ENVIRONMENT_PREFIX + "SVN_REVISION", "4321");
+        assertEquals(expected, properties);
+    }
+
+    private Map<String, String> createEnv() {
+        Map<String, String> env = new HashMap<String, String>();
+        env.put("PATH", "/usr/bin");
+        env.put("BUILD_NUMBER", "12");
+        env.put("SVN_REVISION", "4321");
+        env.put("BUILD_SECRET", "secret");
+        return env;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven2;
+
+import com.google.common.collect.Maps;
+import org.jfrog.build.api.BuildInfoProperties;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the build properties {@link ArtifactsDeployer} attaches to the deployed artifacts and the requests setting
+ * them on the deployed release folders.
+ */
+public class ArtifactsDeployerTest {
+
+    @Test
+    public void commonProperties() {
+        Map<String, String> properties =
+                ArtifactsDeployer.createCommonProperties("project", 12, "upstream", 3, "4321");
+        assertEquals(Arrays.asList("build.name", "build.number", "build.parentName", "build.parentNumber",
+                BuildInfoProperties.PROP_VCS_REVISION), Arrays.asList(properties.keySet().toArray()));
+        assertEquals("project", properties.get("build.name"));
+        assertEquals("12", properties.get("build.number"));
+        assertEquals("upstream", properties.get("build.parentName"));
+        assertEquals("3", properties.get("build.parentNumber"));
+        assertEquals("4321", properties.get(BuildInfoProperties.PROP_VCS_REVISION));
+    }
+
+    @Test
+    public void commonPropertiesWithoutParentAndRevision() {
+        Map<String, String> properties = ArtifactsDeployer.createCommonProperties("project", 12, null, 0, " ");
+        assertEquals(2, properties.size());
+        assertFalse(properties.containsKey("build.parentName"));
+        assertFalse(properties.containsKey(BuildInfoProperties.PROP_VCS_REVISION));
+    }
+
+    @Test
+    public void commonPropertiesAreShareable() {
+        Map<String, String> properties = ArtifactsDeployer.createCommonProperties("project", 12, null, 0, null);
+        try {
+            properties.put("build.timestamp", "1");
+            fail("The properties are shared by all the artifacts and must not be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void escapeProperty() {
+        assertEquals("plain-value.1", ArtifactsDeployer.escapeProperty("plain-value.1"));
+        assertEquals("a\\|b\\,c\\;d\\=e\\\\f", ArtifactsDeployer.escapeProperty("a|b,c;d=e\\f"));
+    }
+
+    @Test
+    public void propertiesParam() {
+        Map<String, String> properties = Maps.newLinkedHashMap();
+        properties.put("build.name", "my|project");
+        properties.put("build.number", "12");
+        properties.put("build.timestamp", "1300000000000");
+        assertEquals("build.name=my\\|project|build.number=12|build.timestamp=1300000000000",
+                ArtifactsDeployer.toPropertiesParam(properties));
+    }
+
+    @Test
+    public void emptyPropertiesParam() {
+        assertEquals("", ArtifactsDeployer.toPropertiesParam(Maps.<String, String>newLinkedHashMap()));
+    }
+
+    @Test
+    public void encodePath() throws Exception {
+        assertEquals("libs-release-local/org/acme/my%20lib/1.0%2Bb%3F1",
+                ArtifactsDeployer.encodePath("libs-release-local/org/acme/my lib/1.0+b?1"));
+        assertEquals("Empty path elements are dropped", "libs-release-local/org",
+                ArtifactsDeployer.encodePath("libs-release-local//org/"));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven2;
+
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.Module;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests how {@link BuildInfoDeployer} carries over modules skipped by an incremental build.
+ */
+public class BuildInfoDeployerTest {
+
+    @Test
+    public void findsTheModuleWhateverItsVersion() {
+        Module core = new ModuleBuilder().id("org.example:core:1.0-SNAPSHOT")
+                .addArtifact(new ArtifactBuilder("core-1.0-SNAPSHOT.jar").type("jar").md5("1234").build()).build();
+        Module coreTests = new ModuleBuilder().id("org.example:core-tests:1.0-SNAPSHOT").build();
+        Build buildInfo = new BuildInfoBuilder("project").number("4").addModule(coreTests).addModule(core).build();
+
+        assertSame(core, BuildInfoDeployer.findModule(buildInfo, "org.example:core"));
+        assertSame(coreTests, BuildInfoDeployer.findModule(buildInfo, "org.example:core-tests"));
+        assertNull(BuildInfoDeployer.findModule(buildInfo, "org.example:co"));
+        assertNull(BuildInfoDeployer.findModule(buildInfo, "org.example:web"));
+        assertNull(BuildInfoDeployer.findModule(new BuildInfoBuilder("project").number("5").build(),
+                "org.example:core"));
+    }
+
+    @Test
+    public void carriedOverModuleKeepsItsVersionArtifactsAndProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("custom", "value");
+        Module module = new ModuleBuilder().id("org.example:core:1.0-SNAPSHOT").properties(properties)
+                .addArtifact(new ArtifactBuilder("core-1.0-SNAPSHOT.jar").type("jar").md5("1234").build()).build();
+
+        Module carriedOver = BuildInfoDeployer.carryOver(module, 4);
+        assertEquals("org.example:core:1.0-SNAPSHOT", carriedOver.getId());
+        assertEquals("core-1.0-SNAPSHOT.jar", carriedOver.getArtifacts().get(0).getName());
+        assertEquals("value", carriedOver.getProperties().getProperty("custom"));
+        assertEquals("4", carriedOver.getProperties().getProperty("carriedOverFromBuild"));
+        assertNull("The properties of the original build are not changed", properties.getProperty(
+                "carriedOverFromBuild"));
+    }
+}
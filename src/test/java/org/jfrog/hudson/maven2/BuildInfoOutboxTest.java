@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the retry schedule of the {@link BuildInfoOutbox}.
+ */
+public class BuildInfoOutboxTest {
+
+    private static final long NOW = 1000000L;
+
+    @Test
+    public void backoffDoublesFromOneMinuteUpToOneHour() {
+        BuildInfoOutbox.Entry entry = new BuildInfoOutbox.Entry("project", 1);
+        long[] expectedMinutes = {1, 2, 4, 8, 16, 32, 60, 60, 60};
+        for (long minutes : expectedMinutes) {
+            assertTrue(entry.scheduleRetry(NOW));
+            assertEquals(TimeUnit.MINUTES.toMillis(minutes), entry.getNextAttempt() - NOW);
+        }
+    }
+
+    @Test
+    public void givesUpAfterTwentyAttempts() {
+        BuildInfoOutbox.Entry entry = new BuildInfoOutbox.Entry("project", 1);
+        for (int i = 1; i < 20; i++) {
+            assertTrue("Attempt " + i, entry.scheduleRetry(NOW));
+        }
+        assertFalse(entry.scheduleRetry(NOW));
+        assertEquals(20, entry.getAttempts());
+    }
+
+    @Test
+    public void backoffDoesNotOverflow() {
+        BuildInfoOutbox.Entry entry = new BuildInfoOutbox.Entry("project", 1);
+        for (int i = 1; i < 20; i++) {
+            entry.scheduleRetry(NOW);
+            assertTrue(entry.getNextAttempt() - NOW > 0);
+            assertTrue(entry.getNextAttempt() - NOW <= TimeUnit.HOURS.toMillis(1));
+        }
+    }
+
+    @Test
+    public void dueEntriesAreLimitedPerRun() {
+        List<BuildInfoOutbox.Entry> entries = new ArrayList<BuildInfoOutbox.Entry>();
+        BuildInfoOutbox.Entry waiting = new BuildInfoOutbox.Entry("project", 1);
+        waiting.scheduleRetry(NOW);
+        entries.add(waiting);
+        for (int i = 2; i <= 8; i++) {
+            entries.add(new BuildInfoOutbox.Entry("project", i));
+        }
+
+        List<BuildInfoOutbox.Entry> due = BuildInfoOutbox.getDueEntries(entries, NOW);
+        assertEquals(5, due.size());
+        assertSame(entries.get(1), due.get(0));
+        assertFalse(due.contains(waiting));
+
+        due = BuildInfoOutbox.getDueEntries(entries, NOW + TimeUnit.MINUTES.toMillis(1));
+        assertSame(waiting, due.get(0));
+    }
+}
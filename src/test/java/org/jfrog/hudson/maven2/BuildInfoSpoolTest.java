@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven2;
+
+import hudson.Util;
+import org.jfrog.build.api.Build;
+import org.jfrog.build.api.builder.ArtifactBuilder;
+import org.jfrog.build.api.builder.BuildInfoBuilder;
+import org.jfrog.build.api.builder.ModuleBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests writing and reading the build info spooled in the build directory.
+ */
+public class BuildInfoSpoolTest {
+
+    private File dir;
+    private File spoolFile;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Util.createTempDir();
+        spoolFile = new File(dir, "artifactory-build-info.json.gz");
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        Util.deleteRecursive(dir);
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        BuildInfoSpool.write(spoolFile, createBuildInfo("7"));
+
+        Build read = BuildInfoSpool.read(spoolFile);
+        assertEquals("project", read.getName());
+        assertEquals("7", read.getNumber());
+        assertEquals(1, read.getModules().size());
+        assertEquals("org.example:core:1.0", read.getModules().get(0).getId());
+        assertEquals("core-1.0.jar", read.getModules().get(0).getArtifacts().get(0).getName());
+        assertFalse(new File(spoolFile.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void replacesThePreviousFile() throws IOException {
+        BuildInfoSpool.write(spoolFile, createBuildInfo("7"));
+        BuildInfoSpool.write(spoolFile, createBuildInfo("8"));
+        assertEquals("8", BuildInfoSpool.read(spoolFile).getNumber());
+    }
+
+    @Test
+    public void missingFile() throws IOException {
+        assertNull(BuildInfoSpool.read(spoolFile));
+    }
+
+    @Test
+    public void failedWriteLeavesNoTempFile() throws IOException {
+        // a directory in place of the temp file makes opening it fail
+        File tempFile = new File(spoolFile.getPath() + ".tmp");
+        assertTrue(tempFile.mkdir());
+        try {
+            BuildInfoSpool.write(spoolFile, createBuildInfo("7"));
+            fail("Writing over a directory should fail");
+        } catch (IOException e) {
+            // expected
+        }
+        assertFalse(spoolFile.exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptFile() throws IOException {
+        FileOutputStream out = new FileOutputStream(spoolFile);
+        out.write("not gzip".getBytes("UTF-8"));
+        out.close();
+        BuildInfoSpool.read(spoolFile);
+    }
+
+    private Build createBuildInfo(String number) {
+        return new BuildInfoBuilder("project").number(number).addModule(new ModuleBuilder().id("org.example:core:1.0")
+                .addArtifact(new ArtifactBuilder("core-1.0.jar").type("jar").md5("1234").build()).build()).build();
+    }
+}
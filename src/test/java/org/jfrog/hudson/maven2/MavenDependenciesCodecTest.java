@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven2;
+
+import org.jfrog.hudson.MavenDependency;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that {@link MavenDependenciesCodec} decodes exactly what it encoded.
+ */
+public class MavenDependenciesCodecTest {
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<MavenDependency> dependencies = new ArrayList<MavenDependency>();
+        dependencies.add(new MavenDependency("org.jfrog", "hudson", "1.0", null, "jar", null, "compile",
+                "hudson-1.0.jar"));
+        dependencies.add(new MavenDependency("org.jfrog", "hudson", "1.0", null, "jar", "sources", "compile",
+                "hudson-1.0-sources.jar"));
+        dependencies.add(new MavenDependency("org.jfrog", "build-info", "1.1-20100101.120000-3", "1.1-SNAPSHOT",
+                "jar", "tests", "test", "build-info-1.1-20100101.120000-3-tests.jar"));
+        dependencies.add(new MavenDependency("org.jfrog", "parent", "2", null, "pom", null, null, null));
+        Map<String, String> parents = new HashMap<String, String>();
+        parents.put(dependencies.get(1).getId(), dependencies.get(0).getId());
+        parents.put(dependencies.get(2).getId(), dependencies.get(0).getId());
+        parents.put(dependencies.get(0).getId(), null);
+
+        Map<String, String> decodedParents = new HashMap<String, String>();
+        Set<MavenDependency> decoded =
+                MavenDependenciesCodec.decode(MavenDependenciesCodec.encode(dependencies, parents), decodedParents);
+
+        assertEquals(dependencies.size(), decoded.size());
+        for (MavenDependency dependency : dependencies) {
+            assertSameFields(dependency, find(decoded, dependency));
+        }
+        assertEquals(parents, decodedParents);
+    }
+
+    @Test
+    public void roundTripWithLargeStringTable() throws IOException {
+        // more than 127 distinct strings, the indices need multi-byte varints
+        List<MavenDependency> dependencies = new ArrayList<MavenDependency>();
+        Map<String, String> parents = new HashMap<String, String>();
+        for (int i = 0; i < 300; i++) {
+            MavenDependency dependency = new MavenDependency("group" + (i % 7), "artifact" + i, "1." + i, null, "jar",
+                    i % 2 == 0 ? null : "classifier" + i, i % 3 == 0 ? null : "runtime", "artifact" + i + ".jar");
+            if (!dependencies.isEmpty()) {
+                parents.put(dependency.getId(), dependencies.get(i / 2).getId());
+            }
+            dependencies.add(dependency);
+        }
+
+        Map<String, String> decodedParents = new HashMap<String, String>();
+        Set<MavenDependency> decoded =
+                MavenDependenciesCodec.decode(MavenDependenciesCodec.encode(dependencies, parents), decodedParents);
+
+        assertEquals(dependencies.size(), decoded.size());
+        for (MavenDependency dependency : dependencies) {
+            assertSameFields(dependency, find(decoded, dependency));
+        }
+        assertEquals(parents, decodedParents);
+    }
+
+    @Test
+    public void roundTripEmpty() throws IOException {
+        Map<String, String> decodedParents = new HashMap<String, String>();
+        Set<MavenDependency> decoded = MavenDependenciesCodec.decode(MavenDependenciesCodec.encode(
+                Collections.<MavenDependency>emptyList(), Collections.<String, String>emptyMap()), decodedParents);
+        assertTrue(decoded.isEmpty());
+        assertTrue(decodedParents.isEmpty());
+    }
+
+    @Test
+    public void unsupportedFormatVersion() {
+        try {
+            MavenDependenciesCodec.decode(new byte[]{99, 0, 0, 0}, new HashMap<String, String>());
+            fail("Expected the unknown format version to be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("99"));
+        }
+    }
+
+    /**
+     * The recorder keeps filling its maps from the mojo executions while the dependencies are encoded, every encoding
+     * must decode to a consistent snapshot.
+     */
+    @Test
+    public void encodeWhileRecording() throws Exception {
+        final ConcurrentMap<MavenDependency, Boolean> dependencies =
+                new ConcurrentHashMap<MavenDependency, Boolean>();
+        final ConcurrentMap<String, String> parents = new ConcurrentHashMap<String, String>();
+        final int threadCount = 4;
+        final int dependenciesPerThread = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> recorderFailure = new AtomicReference<Throwable>();
+        List<Thread> recorders = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int thread = t;
+            Thread recorder = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < dependenciesPerThread; i++) {
+                            MavenDependency dependency = new MavenDependency("group" + thread, "artifact" + i,
+                                    "1." + i, null, "jar", null, "compile", "artifact" + i + ".jar");
+                            dependencies.putIfAbsent(dependency, Boolean.TRUE);
+                            parents.put(dependency.getId(), "group" + thread + ":parent:jar:1.0");
+                        }
+                    } catch (Throwable e) {
+                        recorderFailure.set(e);
+                    }
+                }
+            };
+            recorder.start();
+            recorders.add(recorder);
+        }
+
+        start.countDown();
+        int encodings = 0;
+        boolean recording = true;
+        while (recording) {
+            recording = false;
+            for (Thread recorder : recorders) {
+                recording |= recorder.isAlive();
+            }
+            Map<String, String> decodedParents = new HashMap<String, String>();
+            Set<MavenDependency> decoded = MavenDependenciesCodec.decode(
+                    MavenDependenciesCodec.encode(dependencies.keySet(), parents), decodedParents);
+            for (MavenDependency dependency : decoded) {
+                assertTrue(dependencies.containsKey(dependency));
+            }
+            for (Map.Entry<String, String> parent : decodedParents.entrySet()) {
+                assertEquals(parents.get(parent.getKey()), parent.getValue());
+            }
+            encodings++;
+        }
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+        assertNull(recorderFailure.get());
+        assertTrue(encodings > 0);
+
+        Map<String, String> decodedParents = new HashMap<String, String>();
+        Set<MavenDependency> decoded = MavenDependenciesCodec.decode(
+                MavenDependenciesCodec.encode(dependencies.keySet(), parents), decodedParents);
+        assertEquals(threadCount * dependenciesPerThread, decoded.size());
+        assertEquals(parents, decodedParents);
+    }
+
+    private static MavenDependency find(Set<MavenDependency> dependencies, MavenDependency expected) {
+        for (MavenDependency dependency : dependencies) {
+            if (dependency.equals(expected)) {
+                return dependency;
+            }
+        }
+        fail("Dependency " + expected.getId() + " was not decoded");
+        return null;
+    }
+
+    private static void assertSameFields(MavenDependency expected, MavenDependency actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getGroupId(), actual.getGroupId());
+        assertEquals(expected.getArtifactId(), actual.getArtifactId());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getBaseVersion(), actual.getBaseVersion());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getClassifier(), actual.getClassifier());
+        assertEquals(expected.getScope(), actual.getScope());
+        assertEquals(expected.getFileName(), actual.getFileName());
+    }
+}
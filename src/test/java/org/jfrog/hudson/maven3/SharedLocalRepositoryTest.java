@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.maven3;
+
+import hudson.Util;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the leases, the index and the eviction order of the shared local repositories.
+ */
+public class SharedLocalRepositoryTest {
+
+    private File repositoriesDir;
+
+    @Before
+    public void createDir() throws IOException {
+        repositoriesDir = Util.createTempDir();
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        Util.deleteRecursive(repositoriesDir);
+    }
+
+    @Test
+    public void leasesARepositoryToOneBuildAtATime() throws Exception {
+        String first = new SharedLocalRepository.Acquire("server_libs", "job-1").invoke(repositoriesDir, null);
+        String second = new SharedLocalRepository.Acquire("server_libs", "job-2").invoke(repositoriesDir, null);
+        assertEquals("server_libs-1", first);
+        assertEquals("server_libs-2", second);
+
+        new SharedLocalRepository.Release("job-1").invoke(new File(repositoriesDir, first), null);
+        assertEquals("A released repository is leased again", first,
+                new SharedLocalRepository.Acquire("server_libs", "job-3").invoke(repositoriesDir, null));
+    }
+
+    @Test
+    public void releaseIndexesTheArtifacts() throws Exception {
+        String name = new SharedLocalRepository.Acquire("server_libs", "job-1").invoke(repositoriesDir, null);
+        File repositoryRoot = new File(repositoriesDir, name);
+        File repositoryDir = new File(repositoryRoot, SharedLocalRepository.REPOSITORY_DIR);
+        writeFile(new File(repositoryDir, "org/acme/lib/1.0/lib-1.0.jar"), 100);
+        writeFile(new File(repositoryDir, "org/acme/lib/1.0/lib-1.0.pom"), 20);
+        writeFile(new File(repositoryDir, "org/acme/lib/maven-metadata-central.xml"), 5);
+        assertNull(LocalRepositoryIndex.load(repositoryRoot));
+
+        new SharedLocalRepository.Release("job-1").invoke(repositoryRoot, null);
+
+        LocalRepositoryIndex index = LocalRepositoryIndex.load(repositoryRoot);
+        assertNotNull(index);
+        assertEquals(2, index.getEntries().size());
+        assertEquals(125, index.getSize());
+        assertEquals("org/acme/lib", index.getEntries().iterator().next().getPath());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedArtifactsAcrossRepositories() throws Exception {
+        File first = createRepository("server_libs-1");
+        File second = createRepository("server_libs-2");
+        addArtifact(first, "org/acme/a/1.0", 100, 1000);
+        addArtifact(first, "org/acme/b/1.0", 100, 4000);
+        addArtifact(second, "org/acme/a/1.0", 100, 2000);
+        addArtifact(second, "org/acme/c/1.0", 100, 3000);
+
+        int evicted = SharedLocalRepository.evict(Arrays.asList(first, second), 0, 250);
+
+        assertEquals(2, evicted);
+        assertFalse(artifactDir(first, "org/acme/a/1.0").exists());
+        assertFalse(artifactDir(second, "org/acme/a/1.0").exists());
+        assertFalse("Emptied directories are removed", artifactDir(second, "org/acme/a").exists());
+        assertTrue(artifactDir(first, "org/acme/b/1.0").exists());
+        assertTrue(artifactDir(second, "org/acme/c/1.0").exists());
+        assertEquals(100, LocalRepositoryIndex.load(first).getSize());
+        assertEquals(100, LocalRepositoryIndex.load(second).getSize());
+    }
+
+    @Test
+    public void evictsNothingWithinTheMaximumSize() throws Exception {
+        File repositoryRoot = createRepository("server_libs-1");
+        addArtifact(repositoryRoot, "org/acme/a/1.0", 100, 1000);
+
+        assertEquals(0, SharedLocalRepository.evict(Collections.singletonList(repositoryRoot), 100, 200));
+        assertTrue(artifactDir(repositoryRoot, "org/acme/a/1.0").exists());
+    }
+
+    @Test
+    public void leavesRepositoriesHeldByBuildsAlone() throws Exception {
+        File held = createRepository("server_libs-1");
+        addArtifact(held, "org/acme/a/1.0", 100, 1000);
+        new SharedLocalRepository.Acquire("server_libs", "job-1").invoke(repositoriesDir, null);
+        File free = createRepository("server_libs-2");
+        addArtifact(free, "org/acme/b/1.0", 100, 2000);
+        addArtifact(free, "org/acme/c/1.0", 100, 3000);
+
+        int evicted = new SharedLocalRepository.Evict(200, Collections.singleton("job-1")).invoke(repositoriesDir,
+                null);
+
+        assertEquals("The held repository counts towards the total size", 1, evicted);
+        assertTrue(artifactDir(held, "org/acme/a/1.0").exists());
+        assertFalse(artifactDir(free, "org/acme/b/1.0").exists());
+        assertTrue(artifactDir(free, "org/acme/c/1.0").exists());
+        assertTrue("The cleaner ended its lease",
+                SharedLocalRepository.getLiveMarkers(free, Collections.<String>emptySet()).isEmpty());
+    }
+
+    @Test
+    public void deletesRepositoriesLeftEmpty() throws Exception {
+        File repositoryRoot = createRepository("server_libs-1");
+        addArtifact(repositoryRoot, "org/acme/a/1.0", 100, 1000);
+
+        assertEquals(1, new SharedLocalRepository.Evict(0, Collections.<String>emptySet()).invoke(repositoriesDir,
+                null).intValue());
+        assertFalse(repositoryRoot.exists());
+    }
+
+    private File createRepository(String name) {
+        File repositoryRoot = new File(repositoriesDir, name);
+        new File(repositoryRoot, SharedLocalRepository.REPOSITORY_DIR).mkdirs();
+        return repositoryRoot;
+    }
+
+    private void addArtifact(File repositoryRoot, String path, int size, long lastAccess) throws IOException {
+        writeFile(new File(artifactDir(repositoryRoot, path), "artifact.jar"), size);
+        LocalRepositoryIndex index = LocalRepositoryIndex.load(repositoryRoot);
+        if (index == null) {
+            index = new LocalRepositoryIndex();
+        }
+        index.put(path, size, lastAccess);
+        index.store(repositoryRoot);
+    }
+
+    private File artifactDir(File repositoryRoot, String path) {
+        return new File(new File(repositoryRoot, SharedLocalRepository.REPOSITORY_DIR), path);
+    }
+
+    private void writeFile(File file, int size) throws IOException {
+        FileUtils.writeByteArrayToFile(file, new byte[size]);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import hudson.tasks.LogRotator;
+import org.jfrog.build.api.BuildInfoConfigProperties;
+import org.jfrog.build.api.BuildInfoProperties;
+import org.jfrog.build.client.ClientProperties;
+import org.jfrog.hudson.ArtifactoryServer;
+import org.jfrog.hudson.BuildInfoAwareConfigurator;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Pins the build info properties the Maven 3, Gradle and Ivy integrations hand to their extractors.
+ */
+public class BuildInfoPropertyModelTest {
+
+    private static final String URL = "http://localhost:8081/artifactory";
+
+    /**
+     * Maven 3 job deploying with the server deployer, triggered by an upstream build
+     */
+    @Test
+    public void triggeredBuildWithServerDeployer() {
+        ArtifactoryServer server = new ArtifactoryServer(URL, null, new Credentials("deployer", "secret"), null, 0,
+                false);
+        Map<String, String> env = new HashMap<String, String>();
+        env.put("SVN_REVISION", "4321");
+        Map<String, String> properties = render(BuildInfoPropertyModel.create(new TestConfigurator(), server, env, 12,
+                "1.362", "auto", "http://hudson/job/project/12/", "upstream", 3, null));
+
+        Map<String, String> expected = new LinkedHashMap<String, String>();
+        expected.put(BuildInfoProperties.PROP_BUILD_NUMBER, "12");
+        expected.put(BuildInfoProperties.PROP_AGENT_NAME, "Jenkins");
+        expected.put(BuildInfoProperties.PROP_AGENT_VERSION, "1.362");
+        // Maven 3 used to send "unknown" for builds not started by a user
+        expected.put(BuildInfoProperties.PROP_PRINCIPAL, "auto");
+        expected.put(BuildInfoProperties.PROP_BUILD_URL, "http://hudson/job/project/12/");
+        expected.put(BuildInfoProperties.PROP_VCS_REVISION, "4321");
+        expected.put(BuildInfoProperties.PROP_PARENT_BUILD_NAME, "upstream");
+        expected.put(BuildInfoProperties.PROP_PARENT_BUILD_NUMBER, "3");
+        expected.put(ClientProperties.PROP_CONTEXT_URL, URL);
+        expected.put(ClientProperties.PROP_TIMEOUT, "300");
+        expected.put(ClientProperties.PROP_PUBLISH_REPOKEY, "libs-releases-local");
+        expected.put(ClientProperties.PROP_PUBLISH_USERNAME, "deployer");
+        expected.put(ClientProperties.PROP_PUBLISH_PASSWORD, "secret");
+        expected.put(BuildInfoProperties.PROP_LICENSE_CONTROL_RUN_CHECKS, "false");
+        expected.put(BuildInfoProperties.PROP_LICENSE_CONTROL_INCLUDE_PUBLISHED_ARTIFACTS, "false");
+        expected.put(BuildInfoProperties.PROP_LICENSE_CONTROL_AUTO_DISCOVER, "true");
+        expected.put(BuildInfoConfigProperties.PROP_INCLUDE_ENV_VARS, "false");
+        assertEquals(expected, properties);
+    }
+
+    /**
+     * Gradle job without deployer credentials, started by a user, with retention and deployment patterns
+     */
+    @Test
+    public void userBuildWithoutDeployer() {
+        ArtifactoryServer server = new ArtifactoryServer(URL, null, null, null, 60, false);
+        TestConfigurator configurator = new TestConfigurator();
+        configurator.discardOldBuilds = true;
+        configurator.includeEnvVars = true;
+        configurator.patterns = new IncludesExcludes("**/*.jar", "**/*-tests.jar");
+        Map<String, String> properties = render(BuildInfoPropertyModel.create(configurator, server,
+                Collections.<String, String>emptyMap(), 7, "1.362", "admin", null, null, 0, new LogRotator(30, 5)));
+
+        assertEquals("admin", properties.get(BuildInfoProperties.PROP_PRINCIPAL));
+        assertFalse("Credentials are only sent with a user name",
+                properties.containsKey(ClientProperties.PROP_PUBLISH_USERNAME));
+        assertFalse(properties.containsKey(ClientProperties.PROP_PUBLISH_PASSWORD));
+        assertFalse(properties.containsKey(BuildInfoProperties.PROP_BUILD_URL));
+        assertFalse(properties.containsKey(BuildInfoProperties.PROP_VCS_REVISION));
+        assertFalse(properties.containsKey(BuildInfoProperties.PROP_PARENT_BUILD_NAME));
+        assertEquals("60", properties.get(ClientProperties.PROP_TIMEOUT));
+        assertEquals("5", properties.get(BuildInfoProperties.PROP_BUILD_RETENTION_DAYS));
+        assertEquals("30", properties.get(BuildInfoProperties.PROP_BUILD_RETENTION_MINIMUM_DATE));
+        assertEquals("**/*.jar", properties.get(ClientProperties.PROP_PUBLISH_ARTIFACT_INCLUDE_PATTERNS));
+        assertEquals("**/*-tests.jar", properties.get(ClientProperties.PROP_PUBLISH_ARTIFACT_EXCLUDE_PATTERNS));
+        assertEquals("true", properties.get(BuildInfoConfigProperties.PROP_INCLUDE_ENV_VARS));
+    }
+
+    /**
+     * Ivy job overriding the deployer of the server
+     */
+    @Test
+    public void overridingDeployer() {
+        ArtifactoryServer server = new ArtifactoryServer(URL, null, new Credentials("deployer", "secret"), null, 0,
+                false);
+        TestConfigurator configurator = new TestConfigurator();
+        configurator.overridingDeployer = new Credentials("ivy", null);
+        BuildInfoPropertyModel model = BuildInfoPropertyModel.create(configurator, server,
+                Collections.<String, String>emptyMap(), 7, "1.362", "auto", null, null, 0, null);
+        Map<String, String> properties = render(model);
+
+        assertEquals("ivy", properties.get(ClientProperties.PROP_PUBLISH_USERNAME));
+        assertEquals("", properties.get(ClientProperties.PROP_PUBLISH_PASSWORD));
+
+        Properties asProperties = new Properties();
+        model.putAll(asProperties);
+        assertEquals(model.size(), asProperties.size());
+        assertEquals("ivy", asProperties.getProperty(ClientProperties.PROP_PUBLISH_USERNAME));
+    }
+
+    private Map<String, String> render(BuildInfoPropertyModel model) {
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        model.putAll(properties);
+        assertEquals(model.size(), properties.size());
+        return properties;
+    }
+
+    private static class TestConfigurator implements BuildInfoAwareConfigurator {
+        private boolean discardOldBuilds;
+        private boolean includeEnvVars;
+        private IncludesExcludes patterns;
+        private Credentials overridingDeployer;
+
+        public String getRepositoryKey() {
+            return "libs-releases-local";
+        }
+
+        public IncludesExcludes getArtifactDeploymentPatterns() {
+            return patterns;
+        }
+
+        public boolean isIncludeEnvVars() {
+            return includeEnvVars;
+        }
+
+        public boolean isRunChecks() {
+            return false;
+        }
+
+        public boolean isIncludePublishArtifacts() {
+            return false;
+        }
+
+        public boolean isLicenseAutoDiscovery() {
+            return true;
+        }
+
+        public boolean isDiscardOldBuilds() {
+            return discardOldBuilds;
+        }
+
+        public boolean isOverridingDefaultDeployer() {
+            return overridingDeployer != null;
+        }
+
+        public Credentials getOverridingDeployerCredentials() {
+            return overridingDeployer;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import hudson.FilePath;
+import hudson.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the properties files written for the build info extractors.
+ */
+public class BuildPropertiesFileTest {
+
+    private File dir;
+
+    @Before
+    public void createDir() throws IOException {
+        dir = Util.createTempDir();
+    }
+
+    @After
+    public void deleteDir() throws IOException {
+        Util.deleteRecursive(dir);
+    }
+
+    @Test
+    public void writesAPlainPropertiesFile() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("buildInfo.build.number", "12");
+        properties.setProperty("artifactory.publish.password", "p=ss:w\u00f6rd");
+        File file = new File(dir, "buildInfo/project-12.properties");
+        BuildPropertiesFile.write(new FilePath(file), properties);
+
+        assertEquals(properties, load(file));
+        assertEquals("Only the properties file is left in the directory", Arrays.asList("project-12.properties"),
+                Arrays.asList(file.getParentFile().list()));
+    }
+
+    @Test
+    public void replacesAnExistingFile() throws Exception {
+        File file = new File(dir, "project-12.properties");
+        Properties first = new Properties();
+        first.setProperty("buildInfo.build.number", "12");
+        first.setProperty("stale", "true");
+        BuildPropertiesFile.write(new FilePath(file), first);
+        Properties second = new Properties();
+        second.setProperty("buildInfo.build.number", "12");
+        BuildPropertiesFile.write(new FilePath(file), second);
+
+        assertEquals(second, load(file));
+        assertEquals(1, dir.list().length);
+    }
+
+    private Properties load(File file) throws IOException {
+        Properties loaded = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            loaded.load(in);
+        } finally {
+            in.close();
+        }
+        return loaded;
+    }
+}
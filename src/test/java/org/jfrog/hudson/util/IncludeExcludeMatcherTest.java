@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2010 JFrog Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jfrog.hudson.util;
+
+import org.jfrog.build.client.IncludeExcludePatterns;
+import org.jfrog.build.client.PatternMatcher;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the {@link IncludeExcludeMatcher} against {@link PatternMatcher#pathConflicts}, which it replaces.
+ */
+public class IncludeExcludeMatcherTest {
+
+    private static final String[] PATTERNS = {
+            null, "", "**", "**/*", "*.jar", "**/*.jar", "org/jfrog/**", "org/jfrog/**/*.pom", "org/*/hudson/**",
+            "org/jfrog/hudson/1.0/hudson-1.0.jar", "**/*-sources.jar", "org/jfrog/hudson/?.?/**", "**/hudson/**",
+            "org/jfrog/**,com/**", " org/jfrog/** , **/*.pom ", "*.jar,*.pom", "**/hudson-1.0+build.jar"
+    };
+
+    private static final String[] PATHS = {
+            "org/jfrog/hudson/1.0/hudson-1.0.jar", "org/jfrog/hudson/1.0/hudson-1.0.pom",
+            "org/jfrog/hudson/1.0/hudson-1.0-sources.jar", "org/jfrog/hudson/1.0-SNAPSHOT/hudson-1.0-SNAPSHOT.jar",
+            "com/acme/app/2.1/app-2.1.war", "hudson.jar", "org/jfrog.jar", "org/other/hudson/1.0/hudson-1.0.jar",
+            "org/jfrog/hudson/1.0/hudson-1.0+build.jar"
+    };
+
+    @Test
+    public void sameDecisionsAsPatternMatcher() {
+        for (String include : PATTERNS) {
+            for (String exclude : PATTERNS) {
+                IncludeExcludeMatcher matcher = new IncludeExcludeMatcher(include, exclude);
+                IncludeExcludePatterns patterns = new IncludeExcludePatterns(include, exclude);
+                for (String path : PATHS) {
+                    assertEquals("include '" + include + "', exclude '" + exclude + "', path '" + path + "'",
+                            PatternMatcher.pathConflicts(path, patterns), matcher.isExcluded(path));
+                    // the second call is answered from the decisions cache
+                    assertEquals(PatternMatcher.pathConflicts(path, patterns), matcher.isExcluded(path));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void noPatternsExcludeNothing() {
+        assertFalse(IncludeExcludeMatcher.EMPTY.isExcluded("org/jfrog/hudson/1.0/hudson-1.0.jar"));
+        assertFalse(new IncludeExcludeMatcher(" , ", null).isExcluded("hudson.jar"));
+    }
+
+    @Test
+    public void excludeAppliedAfterInclude() {
+        IncludeExcludeMatcher matcher = new IncludeExcludeMatcher("org/jfrog/**", "**/*-sources.jar");
+        assertFalse(matcher.isExcluded("org/jfrog/hudson/1.0/hudson-1.0.jar"));
+        assertTrue(matcher.isExcluded("org/jfrog/hudson/1.0/hudson-1.0-sources.jar"));
+        assertTrue(matcher.isExcluded("com/acme/app/2.1/app-2.1.jar"));
+    }
+
+    @Test
+    public void patternsAreSplitOnCommasOnly() {
+        IncludeExcludeMatcher matcher = new IncludeExcludeMatcher(" *.jar , *.pom,,*.pom ", null);
+        assertEquals("*.jar,*.pom", matcher.getIncludePatterns());
+
+        // a space is part of the pattern, not a separator
+        matcher = new IncludeExcludeMatcher(null, "my dir/**");
+        assertEquals("my dir/**", matcher.getExcludePatterns());
+        assertTrue(matcher.isExcluded("my dir/a.jar"));
+        assertFalse(matcher.isExcluded("dir/a.jar"));
+    }
+
+    @Test
+    public void blankPatternsNormalizeToNull() {
+        IncludeExcludeMatcher matcher = new IncludeExcludeMatcher("", " , ");
+        assertNull(matcher.getIncludePatterns());
+        assertNull(matcher.getExcludePatterns());
+    }
+}